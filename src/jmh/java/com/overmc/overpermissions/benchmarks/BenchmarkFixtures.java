@@ -0,0 +1,135 @@
+package com.overmc.overpermissions.benchmarks;
+
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.overmc.overpermissions.api.NodeBatch;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.datasources.GroupDataSource;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+import com.overmc.overpermissions.internal.datasources.UserDataSource;
+import com.overmc.overpermissions.internal.localentities.LocalGroup;
+import com.overmc.overpermissions.internal.localentities.LocalUser;
+
+/**
+ * Builds users and groups backed by mock data sources, the same way the permission tests do.<br>
+ * Mocks record every call made to them, so anything called from inside a benchmark loop is stubbed with {@link #stub(Class, Map)} instead.
+ */
+final class BenchmarkFixtures {
+    static final String WORLD_NAME = "world";
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = ImmutableMap.<Class<?>, Object> builder()
+            .put(boolean.class, false).put(byte.class, (byte) 0).put(short.class, (short) 0).put(char.class, '\0')
+            .put(int.class, 0).put(long.class, 0L).put(float.class, 0.0f).put(double.class, 0.0).build();
+
+    private BenchmarkFixtures( ) {
+    }
+
+    /**
+     * @return count nodes spread over a few plugins and categories, with every tenth node negated.
+     */
+    static List<String> createNodes(String prefix, int count) {
+        List<String> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String node = prefix + ".plugin" + (i % 8) + ".category" + (i % 5) + ".node" + i;
+            ret.add(((i % 10) == 9) ? ("-" + node) : node);
+        }
+        return ret;
+    }
+
+    static LocalGroup createGroup(TemporaryPermissionManager tempManager, String name, int priority, List<String> nodes) {
+        GroupDataSource groupSource = mock(GroupDataSource.class);
+        when(groupSource.getPriority()).thenReturn(priority);
+        when(groupSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+        LocalGroup group = new LocalGroup(groupSource, tempManager, name, priority, true);
+        NodeBatch.Builder batch = NodeBatch.builder();
+        for (String node : nodes) {
+            batch.addGlobalNode(node);
+        }
+        batch.addGlobalNode(name + ".wildcard.*");
+        group.addBatchPermissions(batch.build());
+        group.addPermissionNode(name + ".world.node", WORLD_NAME);
+        return group;
+    }
+
+    /**
+     * @return parentCount groups, each with nodesPerParent nodes of its own. The last group has the lowest priority.
+     */
+    static List<LocalGroup> createGroups(TemporaryPermissionManager tempManager, int parentCount, int nodesPerParent) {
+        List<LocalGroup> ret = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            String name = "group" + i;
+            ret.add(createGroup(tempManager, name, parentCount - i, createNodes(name, nodesPerParent)));
+        }
+        return ret;
+    }
+
+    static LocalUser createUser(TemporaryPermissionManager tempManager, Iterable<LocalGroup> parents, List<String> nodes) {
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(userSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+        LocalUser user = new LocalUser(UUID.nameUUIDFromBytes("Name".getBytes(Charsets.UTF_8)), mock(Plugin.class), tempManager, userSource, true);
+        user.loadPermissions(nodes, Collections.<TemporaryPermissionEntry> emptyList());
+        user.recalculatePermissions();
+        for (LocalGroup parent : parents) {
+            user.addParent(parent);
+        }
+        return user;
+    }
+
+    /**
+     * Bukkit's permissible classes read the server's default permissions when they're created.
+     */
+    static synchronized void installServer( ) {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+        Server server = mock(Server.class);
+        when(server.getLogger()).thenReturn(Logger.getLogger("Benchmark"));
+        when(server.getPluginManager()).thenReturn(mock(PluginManager.class));
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Creates an implementation of the given interface that doesn't record its calls.
+     *
+     * @param returnValues the value to return for each method name. Anything else returns null, false or zero.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, final Map<String, ?> returnValues) {
+        final Map<String, ?> values = ImmutableMap.copyOf(returnValues);
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (values.containsKey(method.getName())) {
+                    return values.get(method.getName());
+                }
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        break;
+                }
+                return PRIMITIVE_DEFAULTS.get(method.getReturnType()); // Null for objects.
+            }
+        });
+    }
+}
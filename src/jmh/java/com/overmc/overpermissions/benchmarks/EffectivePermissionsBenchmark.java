@@ -0,0 +1,52 @@
+package com.overmc.overpermissions.benchmarks;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.openjdk.jmh.annotations.*;
+
+import com.google.common.collect.ImmutableMap;
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.bukkitclasses.PermissibleBaseUserBridge;
+import com.overmc.overpermissions.internal.localentities.LocalUser;
+import com.overmc.overpermissions.internal.localentities.LocalUserManager;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EffectivePermissionsBenchmark {
+    private static final int NODES_PER_PARENT = 100;
+    private static final int USER_NODES = 20;
+
+    @Param({"1", "5", "20"})
+    public int parents;
+
+    private PermissibleBaseUserBridge bridge;
+
+    @Setup
+    public void setup( ) {
+        BenchmarkFixtures.installServer();
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        LocalUser user = BenchmarkFixtures.createUser(tempManager, BenchmarkFixtures.createGroups(tempManager, parents, NODES_PER_PARENT), BenchmarkFixtures.createNodes("user", USER_NODES));
+        World world = BenchmarkFixtures.stub(World.class, ImmutableMap.of("getName", BenchmarkFixtures.WORLD_NAME));
+        Player player = BenchmarkFixtures.stub(Player.class, ImmutableMap.of("getUniqueId", user.getUniqueId(), "getWorld", world));
+        LocalUserManager userManager = mock(LocalUserManager.class);
+        when(userManager.getPermissionUser(any(UUID.class))).thenReturn(user);
+        bridge = new PermissibleBaseUserBridge(player, userManager);
+        bridge.getEffectivePermissions(); // Fetch the user once, so that the manager mock isn't called while measuring.
+    }
+
+    @Benchmark
+    public Set<PermissionAttachmentInfo> getEffectivePermissions( ) {
+        return bridge.getEffectivePermissions();
+    }
+}
@@ -0,0 +1,72 @@
+package com.overmc.overpermissions.benchmarks;
+
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.localentities.LocalGroup;
+import com.overmc.overpermissions.internal.localentities.LocalUser;
+
+/**
+ * Permission checks on a user whose node is set by its lowest priority parent, by a wildcard, or not at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HasPermissionBenchmark {
+    private static final int NODES_PER_PARENT = 100;
+    private static final int USER_NODES = 20;
+
+    @Param({"1", "5", "20"})
+    public int parents;
+
+    private LocalUser user;
+    private String parentNode;
+    private String wildcardNode;
+    private String worldNode;
+    private String missingNode;
+
+    @Setup
+    public void setup( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        List<LocalGroup> groups = BenchmarkFixtures.createGroups(tempManager, parents, NODES_PER_PARENT);
+        user = BenchmarkFixtures.createUser(tempManager, groups, BenchmarkFixtures.createNodes("user", USER_NODES));
+        String lastGroup = groups.get(groups.size() - 1).getName();
+        parentNode = BenchmarkFixtures.createNodes(lastGroup, NODES_PER_PARENT).get(NODES_PER_PARENT / 2);
+        wildcardNode = lastGroup + ".wildcard.some.node";
+        worldNode = lastGroup + ".world.node";
+        missingNode = "missing.plugin.node";
+    }
+
+    @Benchmark
+    public boolean hasParentPermission( ) {
+        return user.hasPermission(parentNode, BenchmarkFixtures.WORLD_NAME);
+    }
+
+    @Benchmark
+    public boolean hasWildcardPermission( ) {
+        return user.hasPermission(wildcardNode, BenchmarkFixtures.WORLD_NAME);
+    }
+
+    @Benchmark
+    public boolean hasWorldPermission( ) {
+        return user.hasPermission(worldNode, BenchmarkFixtures.WORLD_NAME);
+    }
+
+    @Benchmark
+    public boolean hasMissingPermission( ) {
+        return user.hasPermission(missingNode, BenchmarkFixtures.WORLD_NAME);
+    }
+
+    @Benchmark
+    public boolean hasGlobalParentPermission( ) {
+        return user.hasGlobalPermission(parentNode);
+    }
+}
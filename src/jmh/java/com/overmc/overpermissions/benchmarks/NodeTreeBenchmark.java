@@ -0,0 +1,82 @@
+package com.overmc.overpermissions.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.overmc.overpermissions.internal.NodeTree;
+
+/**
+ * Lookups in a tree of 1000 nodes, where depth is the number of segments in every node.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeTreeBenchmark {
+    private static final int NODE_COUNT = 1000;
+
+    @Param({"2", "4", "8"})
+    public int depth;
+
+    private NodeTree<Boolean> tree;
+    private String exactNode;
+    private String wildcardNode;
+    private String rootWildcardNode;
+    private String missingNode;
+
+    @Setup
+    public void setup( ) {
+        tree = new NodeTree<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            tree.put(createNode(i, depth), (i % 2) == 0);
+        }
+        for (int i = 0; i < NODE_COUNT; i += 10) { // A wildcard next to every tenth node.
+            tree.put(createParent(i, depth) + ".*", true);
+        }
+        tree.put("root1.*", false);
+        exactNode = createNode(NODE_COUNT / 2, depth);
+        wildcardNode = createParent(NODE_COUNT / 2, depth) + ".unlisted";
+        rootWildcardNode = "root1.unlisted.node";
+        missingNode = "missing." + createNode(NODE_COUNT / 2, depth);
+    }
+
+    private static String createNode(int index, int depth) {
+        return createParent(index, depth) + ".node" + index;
+    }
+
+    private static String createParent(int index, int depth) {
+        StringBuilder sb = new StringBuilder("root").append(index % 20);
+        for (int segment = 1; segment < (depth - 1); segment++) {
+            sb.append(".segment").append(segment).append('_').append(index % (20 * (segment + 1)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public Boolean getExact( ) {
+        return tree.get(exactNode);
+    }
+
+    @Benchmark
+    public Boolean getWildcard( ) {
+        return tree.get(wildcardNode);
+    }
+
+    @Benchmark
+    public Boolean getRootWildcard( ) {
+        return tree.get(rootWildcardNode);
+    }
+
+    @Benchmark
+    public boolean containsKeyExact( ) {
+        return tree.containsKey(exactNode);
+    }
+
+    @Benchmark
+    public boolean containsKeyMissing( ) {
+        return tree.containsKey(missingNode);
+    }
+}
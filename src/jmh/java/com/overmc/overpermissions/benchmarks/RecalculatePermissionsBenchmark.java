@@ -0,0 +1,43 @@
+package com.overmc.overpermissions.benchmarks;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.localentities.LocalGroup;
+import com.overmc.overpermissions.internal.localentities.LocalUser;
+
+/**
+ * Rebuilding a user's permission values from its nodes, as happens whenever its nodes are reloaded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecalculatePermissionsBenchmark {
+    @Param({"10", "100", "1000"})
+    public int nodes;
+
+    private LocalUser user;
+
+    @Setup
+    public void setup( ) {
+        List<String> userNodes = BenchmarkFixtures.createNodes("user", nodes);
+        userNodes.add("user.plugin0.*");
+        userNodes.add("+user.plugin1.category1.node1");
+        user = BenchmarkFixtures.createUser(mock(TemporaryPermissionManager.class), Collections.<LocalGroup> emptyList(), userNodes);
+    }
+
+    @Benchmark
+    public LocalUser recalculatePermissions( ) {
+        user.recalculatePermissions();
+        return user;
+    }
+}
@@ -69,6 +69,29 @@ public interface PermissionEntity extends UniqueEntity {
      */
     public boolean getPermission(String permission, String worldName);
 
+    /**
+     * Look up whether a global permission is set, and its value, in a single pass.
+     * 
+     * @param permission the permission to look up.
+     * @return {@link PermissionState#UNSET} if the permission isn't set, otherwise its value.
+     * 
+     * @see #hasGlobalPermission(String)
+     * @see #getGlobalPermission(String)
+     */
+    public PermissionState getGlobalPermissionState(String permission);
+
+    /**
+     * Look up whether a permission is set in a specific world, and its value, in a single pass.
+     * 
+     * @param permission the permission to look up.
+     * @param worldName the name of the world for the permission to be looked up in.
+     * @return {@link PermissionState#UNSET} if the permission isn't set, otherwise its value.
+     * 
+     * @see #hasPermission(String, String)
+     * @see #getPermission(String, String)
+     */
+    public PermissionState getPermissionState(String permission, String worldName);
+
     /**
      * @param permissionNode the node to be added. Has to be an alphanumeric string, with periods ".", but can have the prefixes "-" and "+" for fine tuning.
      * @return whether or not the specified node was successfully added to this group.
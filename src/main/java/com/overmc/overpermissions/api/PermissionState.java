@@ -0,0 +1,35 @@
+package com.overmc.overpermissions.api;
+
+/**
+ * The state of a permission in a single lookup: set to true, set to false, or not set at all.
+ */
+public enum PermissionState {
+    TRUE,
+    FALSE,
+    UNSET;
+
+    /**
+     * @param value the value of a permission, or null if it isn't set.
+     * @return the state that matches the value.
+     */
+    public static PermissionState fromValue(Boolean value) {
+        if (value == null) {
+            return UNSET;
+        }
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * @return whether the permission is set, regardless of its value.
+     */
+    public boolean isSet( ) {
+        return this != UNSET;
+    }
+
+    /**
+     * @return the value of the permission, or false if it isn't set.
+     */
+    public boolean getValue( ) {
+        return this == TRUE;
+    }
+}
@@ -1,5 +1,7 @@
 package com.overmc.overpermissions.api;
 
+import java.util.UUID;
+
 import org.bukkit.OfflinePlayer;
 
 import com.overmc.overpermissions.exceptions.InvalidUsernameException;
@@ -31,6 +33,16 @@ public interface UserManager {
      */
     public PermissionUser getPermissionUser(String name);
 
+    /**
+     * Guaranteed to return a valid PermissionUser. An actual internal user will be created if a current one doesn't exist and you call a method that changes a persistent variable. <br>
+     * <br>
+     * Unlike the name based lookup, this never has to resolve a name, so it's the fastest way to get a PermissionUser.
+     * 
+     * @param uniqueId the unique id of the player for which to get the PermissionUser for.
+     * @return the PermissionUser for the specified player.
+     */
+    public PermissionUser getPermissionUser(UUID uniqueId);
+
     /**
      * @param player the player to be checked for existence of a {@link PermissionUser} object.
      * @return whether there is a valid {@link PermissionUser} object associated with the specified player.
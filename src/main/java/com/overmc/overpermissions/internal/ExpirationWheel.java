@@ -0,0 +1,207 @@
+package com.overmc.overpermissions.internal;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.overmc.overpermissions.api.TemporaryPermissionEntity;
+
+/**
+ * A hashed timing wheel holding every temporary permission's expiration.<br>
+ * Each bucket holds the expirations that are due in one tick, ones that are due more than a full turn away wait out their remaining rounds.
+ * Cancelled expirations are left in their bucket and dropped when it comes around, so cancelling one, or all of an entity's, takes constant time.
+ */
+public final class ExpirationWheel {
+    private final Object lock = new Object();
+    private final List<List<Expiration>> buckets;
+    private final int mask;
+    private final long tickMillis;
+    private final long startTime;
+    private long currentTick; // The next tick to be processed, guarded by lock.
+
+    private final ConcurrentMap<UUID, EntityExpirations> entities = new ConcurrentHashMap<>();
+
+    /**
+     * @param wheelSize the number of buckets, rounded up to a power of two.
+     * @param tickMillis the time that each bucket covers, which is the resolution of every expiration.
+     * @param startTime the time from which ticks are counted.
+     */
+    public ExpirationWheel(int wheelSize, long tickMillis, long startTime) {
+        Preconditions.checkArgument(wheelSize > 0, "wheel size <= 0");
+        Preconditions.checkArgument(tickMillis > 0, "tick duration <= 0");
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<Expiration>());
+        }
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Schedules the expiration of an entity's node, replacing the one that was scheduled for the same node and world.
+     *
+     * @param worldName the node's world, or null for a global node.
+     */
+    public void schedule(TemporaryPermissionEntity entity, String worldName, String node, long expirationTime) {
+        Preconditions.checkNotNull(entity, "entity");
+        Preconditions.checkNotNull(node, "node");
+        EntityExpirations owner = entities.get(entity.getUniqueId());
+        if (owner == null) {
+            EntityExpirations newOwner = new EntityExpirations(entity);
+            owner = entities.putIfAbsent(entity.getUniqueId(), newOwner);
+            if (owner == null) {
+                owner = newOwner;
+            }
+        }
+        Expiration expiration = new Expiration(owner, worldName, node, expirationTime);
+        Expiration previous = owner.expirations.put(expiration.key, expiration);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        synchronized (lock) {
+            long expirationTick = Math.max(currentTick, ceilDiv(expirationTime - startTime, tickMillis)); // Overdue expirations go out with the next tick.
+            expiration.remainingRounds = (expirationTick - currentTick) / buckets.size();
+            buckets.get((int) (expirationTick & mask)).add(expiration);
+        }
+    }
+
+    /**
+     * @param worldName the node's world, or null for a global node.
+     * @return whether an expiration was scheduled for the given node.
+     */
+    public boolean cancel(UUID uniqueId, String worldName, String node) {
+        EntityExpirations owner = entities.get(uniqueId);
+        if (owner == null) {
+            return false;
+        }
+        Expiration expiration = owner.expirations.remove(createKey(worldName, node));
+        if (expiration == null) {
+            return false;
+        }
+        expiration.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Cancels every expiration scheduled for the given entity.
+     */
+    public void cancelAll(UUID uniqueId) {
+        EntityExpirations owner = entities.remove(uniqueId);
+        if (owner != null) {
+            owner.cancelled = true;
+        }
+    }
+
+    /**
+     * Processes every tick up to the given time.
+     *
+     * @return the expirations that are due, grouped by entity. They're no longer scheduled once they're returned.
+     */
+    public Map<TemporaryPermissionEntity, List<Expiration>> advance(long now) {
+        List<Expiration> due = new ArrayList<>();
+        synchronized (lock) {
+            while ((startTime + (currentTick * tickMillis)) <= now) {
+                List<Expiration> bucket = buckets.get((int) (currentTick & mask));
+                for (Iterator<Expiration> it = bucket.iterator(); it.hasNext();) {
+                    Expiration expiration = it.next();
+                    if (expiration.isCancelled()) {
+                        it.remove();
+                    } else if (expiration.remainingRounds <= 0) {
+                        it.remove();
+                        due.add(expiration);
+                    } else {
+                        expiration.remainingRounds--;
+                    }
+                }
+                currentTick++;
+            }
+        }
+        Map<TemporaryPermissionEntity, List<Expiration>> ret = new LinkedHashMap<>();
+        for (Expiration expiration : due) {
+            if (expiration.owner.cancelled || !expiration.owner.expirations.remove(expiration.key, expiration)) {
+                continue; // Cancelled or replaced since the bucket was processed.
+            }
+            List<Expiration> entityExpirations = ret.get(expiration.owner.entity);
+            if (entityExpirations == null) {
+                entityExpirations = new ArrayList<>();
+                ret.put(expiration.owner.entity, entityExpirations);
+            }
+            entityExpirations.add(expiration);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of expirations that are scheduled and haven't been cancelled.
+     */
+    public int size( ) {
+        int ret = 0;
+        for (EntityExpirations owner : entities.values()) {
+            ret += owner.expirations.size();
+        }
+        return ret;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return ((dividend % divisor) > 0) ? (quotient + 1) : quotient;
+    }
+
+    private static String createKey(String worldName, String node) {
+        node = node.toLowerCase();
+        return (worldName == null) ? node : (worldName.toLowerCase() + '\n' + node); // A line break can't be part of a node or a world name.
+    }
+
+    private static final class EntityExpirations {
+        private final TemporaryPermissionEntity entity;
+        private final ConcurrentMap<String, Expiration> expirations = new ConcurrentHashMap<>();
+        private volatile boolean cancelled;
+
+        EntityExpirations(TemporaryPermissionEntity entity) {
+            this.entity = entity;
+        }
+    }
+
+    public static final class Expiration {
+        private final EntityExpirations owner;
+        private final String key;
+        private final String worldName;
+        private final String node;
+        private final long expirationTime;
+        private long remainingRounds; // Guarded by the wheel's lock.
+        private volatile boolean cancelled;
+
+        Expiration(EntityExpirations owner, String worldName, String node, long expirationTime) {
+            this.owner = owner;
+            this.key = createKey(worldName, node);
+            this.worldName = worldName;
+            this.node = node;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isCancelled( ) {
+            return cancelled || owner.cancelled;
+        }
+
+        /**
+         * @return the node's world, or null for a global node.
+         */
+        public String getWorldName( ) {
+            return worldName;
+        }
+
+        public String getNode( ) {
+            return node;
+        }
+
+        public long getExpirationTime( ) {
+            return expirationTime;
+        }
+    }
+}
@@ -12,9 +12,18 @@ final class GeneralListener implements Listener {
         this.plugin = plugin;
     }
 
-    @EventHandler(priority = EventPriority.LOWEST)
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handlePlayerPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.prefetchPlayer(e.getName(), e.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
     public void handlePlayerLogin(PlayerLoginEvent e) {
-        plugin.initPlayerUUID(e.getPlayer());
+        if (e.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.discardPrefetchedPlayer(e.getPlayer().getUniqueId());
+        }
     }
     
     @EventHandler(priority = EventPriority.LOWEST)
@@ -29,6 +38,6 @@ final class GeneralListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void handlePlayerChangedWorld(PlayerChangedWorldEvent e) {
-        ((LocalUser) plugin.getUserManager().getPermissionUser(e.getPlayer())).recalculatePermissions();
+        ((LocalUser) plugin.getUserManager().getPermissionUser(e.getPlayer())).preparePermissionSnapshot(e.getPlayer().getWorld().getName());
     }
 }
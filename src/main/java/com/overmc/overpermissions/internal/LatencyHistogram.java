@@ -0,0 +1,77 @@
+package com.overmc.overpermissions.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts durations in buckets whose bounds double, from one microsecond up to about half an hour.<br>
+ * Recording is lock free, and percentiles are accurate to within a factor of two.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKET_COUNT = 32; // Bucket i holds durations shorter than 2^i microseconds, the last one holds everything longer.
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long durationNanos) {
+        long nanos = Math.max(0L, durationNanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.incrementAndGet(Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount( ) {
+        return count.get();
+    }
+
+    public double getAverageMillis( ) {
+        long currentCount = count.get();
+        return (currentCount == 0) ? 0.0 : (toMillis(totalNanos.get()) / currentCount);
+    }
+
+    public double getMaxMillis( ) {
+        return toMillis(maxNanos.get());
+    }
+
+    /**
+     * @param percentile the percentage of durations, from 0 to 100, that the returned duration is at least as long as.
+     * @return the upper bound of the bucket that the percentile falls in, capped to the longest duration recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+        Preconditions.checkArgument((percentile >= 0.0) && (percentile <= 100.0), "percentile must be between 0 and 100.");
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1L, (long) Math.ceil((total * percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < (BUCKET_COUNT - 1); i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(toMillis(TimeUnit.MICROSECONDS.toNanos(1L << i)), getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -3,55 +3,74 @@ package com.overmc.overpermissions.internal;
 import java.util.*;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
 
 public class NodeTree<E> implements Map<String, E> {
-    private static final Splitter splitter = Splitter.on('.');
+    private static final String WILDCARD = "*";
+    private static final Object NOT_FOUND = new Object(); // Values can be null, so a miss needs its own marker.
 
-    private final Map<String, NodeTree<E>> subNodeContainers = new HashMap<>(4); // Nodes that have this node as a subparent. (this.subnode.subsubnode)
-    private final Map<String, E> physicalSubNodes = new HashMap<>(4); // Nodes that have this node as their only parent. (this.subnode)
+    private final SegmentTable<NodeTree<E>> subNodeContainers = new SegmentTable<>(); // Nodes that have this node as a subparent. (this.subnode.subsubnode)
+    private final SegmentTable<E> physicalSubNodes = new SegmentTable<>(); // Nodes that have this node as their only parent. (this.subnode)
 
     private int size = 0;
 
+    public NodeTree( ) {
+    }
+
+    /**
+     * Create a deep copy of another node tree, so that it can be modified without affecting the original.
+     */
+    public NodeTree(NodeTree<E> other) {
+        Preconditions.checkNotNull(other, "other");
+        for (int i = 0; i < other.subNodeContainers.capacity(); i++) {
+            if (other.subNodeContainers.keyAt(i) != null) {
+                subNodeContainers.insert(other.subNodeContainers.keyAt(i), new NodeTree<>(other.subNodeContainers.valueAt(i)));
+            }
+        }
+        for (int i = 0; i < other.physicalSubNodes.capacity(); i++) {
+            if (other.physicalSubNodes.keyAt(i) != null) {
+                physicalSubNodes.insert(other.physicalSubNodes.keyAt(i), other.physicalSubNodes.valueAt(i));
+            }
+        }
+        size = other.size;
+    }
+
     @Override
     public E put(String node, E value) {
         Preconditions.checkNotNull(node, "node");
-        node = node.toLowerCase();
-        List<String> split = Lists.newArrayList(splitter.split(node));
-        for (String s : split) {
-            if (s == null || s.length() == 0) {
-                throw new IllegalArgumentException("String \"" + node + "\" can't be parsed into a NodeTree.");
-            }
+        node = foldCase(node);
+        if (node.isEmpty() || node.startsWith(".") || node.endsWith(".") || node.contains("..")) {
+            throw new IllegalArgumentException("String \"" + node + "\" can't be parsed into a NodeTree.");
         }
-        return setInternal(split, value);
+        return unwrap(setInternal(node, 0, value));
     }
 
-    private E setInternal(List<String> subnodes, E value) {
-        if (subnodes.isEmpty()) {
-            return null;
-        }
-        String nodeName = subnodes.get(0);
-        if (subnodes.size() == 1) {
-            E ret = physicalSubNodes.put(nodeName, value);
-            if (ret == null) { // A new element was added
-                size++;
+    private Object setInternal(String node, int start, E value) {
+        int end = node.indexOf('.', start);
+        Object ret;
+        if (end < 0) {
+            int slot = physicalSubNodes.find(node, start, node.length());
+            if (slot >= 0) {
+                ret = physicalSubNodes.valueAt(slot);
+                physicalSubNodes.setValueAt(slot, value);
+            } else {
+                physicalSubNodes.insert(node.substring(start), value);
+                ret = NOT_FOUND;
             }
-            return ret;
         } else {
+            int slot = subNodeContainers.find(node, start, end);
             NodeTree<E> subNode;
-            if (subNodeContainers.containsKey(nodeName)) {
-                subNode = subNodeContainers.get(nodeName);
+            if (slot >= 0) {
+                subNode = subNodeContainers.valueAt(slot);
             } else {
                 subNode = new NodeTree<>();
-                subNodeContainers.put(nodeName, subNode);
-            }
-            E ret = subNode.setInternal(subnodes.subList(1, subnodes.size()), value);
-            if (ret == null) { // A new element was added
-                size++;
+                subNodeContainers.insert(node.substring(start, end), subNode);
             }
-            return ret;
+            ret = subNode.setInternal(node, end + 1, value);
+        }
+        if (ret == NOT_FOUND) { // A new element was added
+            size++;
         }
+        return ret;
     }
 
     @Override
@@ -60,34 +79,34 @@ public class NodeTree<E> implements Map<String, E> {
         if (!(key instanceof String)) {
             return null;
         }
-        String node = (String) key;
-        List<String> split = Arrays.asList(node.split("\\."));
-        return removeInternal(split);
+        return unwrap(removeInternal((String) key, 0));
     }
 
-    private E removeInternal(List<String> subnodes) {
-        if (subnodes.isEmpty()) {
-            return null;
-        }
-        String nodeName = subnodes.get(0);
-        if (subnodes.size() == 1) {
-            E ret = physicalSubNodes.remove(nodeName);
-            if (ret != null) { // An element was removed
-                size--;
+    private Object removeInternal(String node, int start) {
+        int end = node.indexOf('.', start);
+        Object ret;
+        if (end < 0) {
+            int slot = physicalSubNodes.find(node, start, node.length());
+            if (slot < 0) {
+                return NOT_FOUND;
             }
-            return ret;
+            ret = physicalSubNodes.valueAt(slot);
+            physicalSubNodes.removeAt(slot);
         } else {
-            if (subNodeContainers.containsKey(nodeName)) {
-                NodeTree<E> subNode = subNodeContainers.get(nodeName);
-                E ret = subNode.removeInternal(subnodes.subList(1, subnodes.size()));
-                if (ret != null) { // A new element was added
-                    size--;
-                }
-                return ret;
-            } else {
-                return null;
+            int slot = subNodeContainers.find(node, start, end);
+            if (slot < 0) {
+                return NOT_FOUND;
+            }
+            NodeTree<E> subNode = subNodeContainers.valueAt(slot);
+            ret = subNode.removeInternal(node, end + 1);
+            if (subNode.isEmpty()) {
+                subNodeContainers.removeAt(slot);
             }
         }
+        if (ret != NOT_FOUND) { // An element was removed
+            size--;
+        }
+        return ret;
     }
 
     @Override
@@ -96,31 +115,7 @@ public class NodeTree<E> implements Map<String, E> {
         if (!(key instanceof String)) {
             return false;
         }
-        String node = (String) key;
-        List<String> split = Arrays.asList(node.toLowerCase().split("\\."));
-        return hasInternal(split);
-    }
-
-    private boolean hasInternal(List<String> subnodes) {
-        String baseNodeName = subnodes.get(0);
-        if (physicalSubNodes.containsKey("*")) { // node.* would match node.subnode.*
-            return true;
-        }
-        if (subnodes.size() == 1) {
-            return physicalSubNodes.containsKey(baseNodeName);
-        } else {
-            if (subNodeContainers.containsKey(baseNodeName)) {
-                if (subNodeContainers.get(baseNodeName).hasInternal(subnodes.subList(1, subnodes.size()))) {
-                    return true;
-                }
-            }
-            if (subNodeContainers.containsKey("*")) {
-                if (subNodeContainers.get("*").hasInternal(subnodes.subList(1, subnodes.size()))) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return getInternal((String) key, 0) != NOT_FOUND;
     }
 
     @Override
@@ -129,49 +124,63 @@ public class NodeTree<E> implements Map<String, E> {
         if (!(key instanceof String)) {
             return null;
         }
-        String node = (String) key;
-        List<String> split = Arrays.asList(node.toLowerCase().split("\\."));
-        return getInternal(split);
+        return unwrap(getInternal((String) key, 0));
     }
 
-    private E getInternal(List<String> subnodes) {
-        E value = null;
-        String baseNodeName = subnodes.get(0);
-        if (subnodes.size() == 1) { // Try to match full nodes before wildcard nodes.
-            if (physicalSubNodes.containsKey(baseNodeName)) {
-                return physicalSubNodes.get(baseNodeName);
+    /**
+     * Walk the node by character index, so a lookup doesn't allocate anything.
+     */
+    private Object getInternal(String node, int start) {
+        int end = node.indexOf('.', start);
+        if (end < 0) { // Try to match full nodes before wildcard nodes.
+            int slot = physicalSubNodes.find(node, start, node.length());
+            if (slot >= 0) {
+                return physicalSubNodes.valueAt(slot);
             }
         } else {
-            if (subNodeContainers.containsKey(baseNodeName)) {
-                if ((value = subNodeContainers.get(baseNodeName).getInternal(subnodes.subList(1, subnodes.size()))) != null) {
+            int slot = subNodeContainers.find(node, start, end);
+            if (slot >= 0) {
+                Object value = subNodeContainers.valueAt(slot).getInternal(node, end + 1);
+                if (value != NOT_FOUND) {
                     return value;
                 }
             }
-            if (subNodeContainers.containsKey("*")) {
-                if (((value = subNodeContainers.get("*").getInternal(subnodes.subList(1, subnodes.size())))) != null) {
+            slot = subNodeContainers.find(WILDCARD);
+            if (slot >= 0) {
+                Object value = subNodeContainers.valueAt(slot).getInternal(node, end + 1);
+                if (value != NOT_FOUND) {
                     return value;
                 }
             }
         }
-        if (physicalSubNodes.containsKey("*")) { // node.* would match node.subnode.*
-            return physicalSubNodes.get("*");
+        int slot = physicalSubNodes.find(WILDCARD); // node.* would match node.subnode.*
+        if (slot >= 0) {
+            return physicalSubNodes.valueAt(slot);
         }
-        return value;
+        return NOT_FOUND;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E unwrap(Object value) {
+        return (value == NOT_FOUND) ? null : (E) value;
     }
 
     @Override
     public void clear( ) {
         subNodeContainers.clear();
         physicalSubNodes.clear();
+        size = 0;
     }
 
     @Override
     public boolean containsValue(Object object) {
-        if (physicalSubNodes.containsValue(object)) {
-            return true;
+        for (int i = 0; i < physicalSubNodes.capacity(); i++) {
+            if ((physicalSubNodes.keyAt(i) != null) && Objects.equals(physicalSubNodes.valueAt(i), object)) {
+                return true;
+            }
         }
-        for (NodeTree<E> subTree : subNodeContainers.values()) {
-            if (subTree.containsValue(object)) {
+        for (int i = 0; i < subNodeContainers.capacity(); i++) {
+            if ((subNodeContainers.keyAt(i) != null) && subNodeContainers.valueAt(i).containsValue(object)) {
                 return true;
             }
         }
@@ -179,8 +188,23 @@ public class NodeTree<E> implements Map<String, E> {
     }
 
     @Override
-    public Set<Map.Entry<String, E>> entrySet( ) {
-        throw new UnsupportedOperationException("Can't get the entry set of a Node Tree."); // TODO
+    public Set<Map.Entry<String, E>> entrySet( ) { // TODO back by collection
+        Set<Map.Entry<String, E>> ret = new HashSet<>(size);
+        enumerateEntries(ret, "");
+        return ret;
+    }
+
+    private void enumerateEntries(Set<Map.Entry<String, E>> set, String base) {
+        for (int i = 0; i < subNodeContainers.capacity(); i++) {
+            if (subNodeContainers.keyAt(i) != null) {
+                subNodeContainers.valueAt(i).enumerateEntries(set, base + subNodeContainers.keyAt(i) + ".");
+            }
+        }
+        for (int i = 0; i < physicalSubNodes.capacity(); i++) {
+            if (physicalSubNodes.keyAt(i) != null) {
+                set.add(new AbstractMap.SimpleImmutableEntry<>(base + physicalSubNodes.keyAt(i), physicalSubNodes.valueAt(i)));
+            }
+        }
     }
 
     @Override
@@ -190,33 +214,33 @@ public class NodeTree<E> implements Map<String, E> {
 
     @Override
     public Set<String> keySet( ) { // TODO back by collection
-        List<StringBuilder> builders = new ArrayList<>();
-        enumerateSubnodes(builders, new StringBuilder());
-        Set<String> ret = new HashSet<String>(builders.size());
-        for (StringBuilder b : builders) {
-            ret.add(b.toString());
+        Set<String> ret = new HashSet<>(size);
+        for (Map.Entry<String, E> entry : entrySet()) {
+            ret.add(entry.getKey());
         }
         return ret;
     }
 
-    private void enumerateSubnodes(List<StringBuilder> list, StringBuilder base) {
-        for (Map.Entry<String, NodeTree<E>> entry : subNodeContainers.entrySet()) {
-            StringBuilder subBase = new StringBuilder(base);
-            if (base.length() != 0) {
-                subBase.append(".");
+    @Override
+    public Collection<E> values( ) {
+        List<E> ret = new ArrayList<>(size);
+        enumerateValues(ret);
+        return ret;
+    }
+
+    private void enumerateValues(List<E> list) {
+        for (int i = 0; i < subNodeContainers.capacity(); i++) {
+            if (subNodeContainers.keyAt(i) != null) {
+                subNodeContainers.valueAt(i).enumerateValues(list);
             }
-            entry.getValue().enumerateSubnodes(list, subBase.append(entry.getKey()));
         }
-        for (String node : physicalSubNodes.keySet()) {
-            list.add(new StringBuilder(base).append(".").append(node));
+        for (int i = 0; i < physicalSubNodes.capacity(); i++) {
+            if (physicalSubNodes.keyAt(i) != null) {
+                list.add(physicalSubNodes.valueAt(i));
+            }
         }
     }
 
-    @Override
-    public Collection<E> values( ) {
-        throw new UnsupportedOperationException("Can't get the values of a Node Tree.");
-    }
-
     @Override
     public void putAll(Map<? extends String, ? extends E> otherMap) {
         throw new UnsupportedOperationException("Can't putAll into a Node Tree.");
@@ -231,4 +255,163 @@ public class NodeTree<E> implements Map<String, E> {
     public String toString( ) {
         return "NodeTree [" + subNodeContainers + ", " + physicalSubNodes + "]";
     }
-}
\ No newline at end of file
+
+    private static char foldCase(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static String foldCase(String node) { // Folded per character, so stored keys always agree with lookups.
+        for (int i = 0; i < node.length(); i++) {
+            char c = node.charAt(i);
+            if (foldCase(c) != c) {
+                char[] chars = node.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = foldCase(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * A small open addressing table of case-folded node segments, that can be probed with a region of a longer node.<br>
+     * Slots are exposed directly so that the tree can walk and modify it without allocating iterators or entries.
+     */
+    private static final class SegmentTable<V> {
+        private String[] keys = new String[4];
+        private Object[] values = new Object[4];
+        private int size = 0;
+
+        private static int hash(String node, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = (31 * h) + foldCase(node.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean regionMatches(String key, String node, int start, int end) {
+            if (key.length() != (end - start)) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != foldCase(node.charAt(start + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int find(String key) {
+            return find(key, 0, key.length());
+        }
+
+        /**
+         * @return the slot of the segment node[start, end), or -1 if it isn't in this table.
+         */
+        int find(String node, int start, int end) {
+            int mask = keys.length - 1;
+            int i = hash(node, start, end) & mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (regionMatches(key, node, start, end)) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        String keyAt(int slot) {
+            return keys[slot];
+        }
+
+        @SuppressWarnings("unchecked")
+        V valueAt(int slot) {
+            return (V) values[slot];
+        }
+
+        void setValueAt(int slot, V value) {
+            values[slot] = value;
+        }
+
+        /**
+         * Insert a folded key that isn't already present.
+         */
+        void insert(String key, V value) {
+            if (((size + 1) * 2) > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = (slot + 1) & mask;
+            while (keys[i] != null) { // Shift back any following entries that could no longer be reached through the hole.
+                int home = hash(keys[i], 0, keys[i].length()) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[hole] = null;
+            values[hole] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            String[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new String[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    @SuppressWarnings("unchecked")
+                    V value = (V) oldValues[i];
+                    insert(oldKeys[i], value);
+                }
+            }
+        }
+
+        int capacity( ) {
+            return keys.length;
+        }
+
+        boolean isEmpty( ) {
+            return size == 0;
+        }
+
+        void clear( ) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        @Override
+        public String toString( ) {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    if (sb.length() > 1) {
+                        sb.append(", ");
+                    }
+                    sb.append(keys[i]).append('=').append(values[i]);
+                }
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.overmc.overpermissions.internal;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.overmc.overpermissions.api.GroupManager;
-import com.overmc.overpermissions.api.PermissionUser;
 import com.overmc.overpermissions.api.UserManager;
 import com.overmc.overpermissions.exceptions.MissingDependencyException;
 import com.overmc.overpermissions.exceptions.StartException;
 import com.overmc.overpermissions.internal.commands.*;
+import com.overmc.overpermissions.internal.databases.ConnectionPool;
 import com.overmc.overpermissions.internal.databases.Database;
+import com.overmc.overpermissions.internal.databases.memory.MemoryDatabase;
+import com.overmc.overpermissions.internal.databases.mysql.MySQLDriverSettings;
 import com.overmc.overpermissions.internal.databases.mysql.MySQLManager;
+import com.overmc.overpermissions.internal.databases.mysql.MySQLPoolSettings;
+import com.overmc.overpermissions.internal.databases.writebehind.WriteBehindDatabase;
 import com.overmc.overpermissions.internal.datasources.UUIDHandler;
 import com.overmc.overpermissions.internal.dependencies.DefaultDependencies;
 import com.overmc.overpermissions.internal.dependencies.Dependency;
@@ -26,7 +29,9 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.security.acl.Group;
 import java.util.ArrayList;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.logging.Level;
 
 public final class OverPermissions extends JavaPlugin {
     private TemporaryPermissionManager tempManager;
@@ -36,6 +41,7 @@ public final class OverPermissions extends JavaPlugin {
     private String defaultGroup;
 
     private Database database;
+    private ConnectionPool connectionPool;
     private UUIDHandler uuidHandler;
 
     // Listeners
@@ -47,31 +53,9 @@ public final class OverPermissions extends JavaPlugin {
 
     private boolean failureStarting = false;
 
-    public final ExecutorService exec = new ThreadPoolExecutor(0, 2147483647, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactoryBuilder()
-            .setNameFormat("Plugin " + getDescription().getName() + " pool thread %d").build()) {
-        @Override
-        protected void afterExecute(Runnable r, Throwable t) { // This solution is taken from StackOverflow @ http://stackoverflow.com/questions/2248131/handling-exceptions-from-java-executorservice-tasks
-            super.afterExecute(r, t);
-            if (t == null && r instanceof Future<?>) {
-                try {
-                    Future<?> future = (Future<?>) r;
-                    if (future.isDone()) {
-                        future.get();
-                    }
-                } catch (CancellationException ex) {
-                    t = ex;
-                } catch (ExecutionException ex) {
-                    t = ex.getCause();
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt(); // Propegate
-                }
-            }
-            if (t != null) {
-                getLogger().severe("Uncaught exception from plugin " + getDescription().getName() + "'s pool: " + t.getMessage());
-                t.printStackTrace();
-            }
-        }
-    };
+    private static final long PREFETCH_TIMEOUT_SECONDS = 10;
+
+    private PluginExecutor exec;
 
     private void initConfig( ) throws Exception {
         saveDefaultConfig();
@@ -100,6 +84,20 @@ public final class OverPermissions extends JavaPlugin {
         }
     }
 
+    /**
+     * Creates the plugin's executor, bounded to the given amount of threads so that it can't open more database connections than the pool has.
+     */
+    private void initExecutor(int threads) throws StartException {
+        String rejectionPolicyValue = getConfig().getString("executor.rejection-policy", "CALLER_RUNS");
+        PluginExecutor.RejectionPolicy rejectionPolicy;
+        try {
+            rejectionPolicy = PluginExecutor.RejectionPolicy.valueOf(rejectionPolicyValue.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new StartException("Invalid configuration option: 'executor.rejection-policy': (" + rejectionPolicyValue + ")");
+        }
+        exec = new PluginExecutor(getDescription().getName(), getLogger(), threads, Math.max(1, getConfig().getInt("executor.queue-capacity", 1000)), rejectionPolicy);
+    }
+
     private void initManagers( ) throws Exception {
         String type = getConfig().getString("sql.type", "mysql").toLowerCase();
         String wildcardSupportValue = getConfig().getString("wildcard-support", "STANDARD");
@@ -111,28 +109,52 @@ public final class OverPermissions extends JavaPlugin {
         } else {
             throw new StartException("The configuration option wildcard-support is set to an invalid value: " + wildcardSupportValue);
         }
+        int poolSize = Math.max(1, getConfig().getInt("sql.pool-size", 10));
+        MySQLPoolSettings poolSettings = new MySQLPoolSettings(poolSize,
+                Math.max(0, Math.min(poolSize, getConfig().getInt("sql.pool-minimum-idle", 2))),
+                Math.max(1L, getConfig().getLong("sql.pool-connection-timeout", 1000L)),
+                Math.max(0L, getConfig().getLong("sql.pool-idle-timeout", 600000L)),
+                Math.max(0L, getConfig().getLong("sql.pool-max-lifetime", 1800000L)),
+                Math.max(0L, getConfig().getLong("sql.pool-leak-detection-threshold", 0L)));
+        initExecutor(poolSettings.getMaximumPoolSize());
         Database database;
         switch (type) {
+            case "memory": {
+                getLogger().warning("Permissions are only stored in memory, they'll be lost once the server stops.");
+                database = new MemoryDatabase(defaultGroup, getConfig().getBoolean("force-online-mode", false));
+                break;
+            }
             default:
                 getLogger().warning("Type value " + type + " wasn't recognized. Defaulting to mysql.");
             case "mysql": {
-                database = new MySQLManager(getLogger(), exec, defaultGroup,
+                MySQLManager sqlManager = new MySQLManager(getLogger(), exec, defaultGroup,
                         getConfig().getString("sql.address", "localhost"),
                         getConfig().getString("sql.port", ""),
                         getConfig().getString("sql.dbname", "OverPermissions"),
                         getConfig().getString("sql.dbusername", "root"),
                         getConfig().getString("sql.dbpassword", ""),
                         getConfig().getBoolean("sql.use-pool", false),
-                        getConfig().getBoolean("force-online-mode", false));
+                        poolSettings,
+                        new MySQLDriverSettings(getConfig().getBoolean("sql.rewrite-batched-statements", true),
+                                getConfig().getBoolean("sql.server-prepared-statements", true),
+                                Math.max(0, getConfig().getInt("sql.statement-cache-size", 250))),
+                        getConfig().getBoolean("force-online-mode", false),
+                        TimeUnit.SECONDS.toMillis(getConfig().getLong("sql.purge-interval", 300)));
+                connectionPool = sqlManager.getConnectionPool();
+                database = sqlManager;
             }
 
         }
+        if (!(database instanceof MemoryDatabase) && getConfig().getBoolean("sql.write-behind", false)) { // Memory writes are already instant.
+            database = new WriteBehindDatabase(getLogger(), database, getConfig().getLong("sql.write-behind-delay", 100), TimeUnit.MILLISECONDS);
+        }
         this.database = database;
         uuidHandler = database.getUUIDHandler();
-        tempManager = new TemporaryPermissionManager(this, database);
-        groupManager = new LocalGroupManager(database, tempManager, wildcardSupport);
+        tempManager = new TemporaryPermissionManager(this, Math.max(1L, getConfig().getLong("temporary-permission-resolution", 250L)));
+        tempManager.start();
+        groupManager = new LocalGroupManager(getLogger(), database, tempManager, wildcardSupport);
         groupManager.reloadGroups();
-        userManager = new LocalUserManager(this, groupManager, uuidHandler, tempManager, database, getDefaultGroupName(), wildcardSupport);
+        userManager = new LocalUserManager(this, groupManager, uuidHandler, tempManager, database, exec, getDefaultGroupName(), wildcardSupport);
     }
 
     private void initCommands( ) throws Exception {
@@ -184,18 +206,36 @@ public final class OverPermissions extends JavaPlugin {
 
     void initPlayer(Player player) {
         wildcardAction.initializePlayer(player);
-        userManager.initializeUser(player);
-        PermissionUser user = userManager.getPermissionUser(player);
-        tempManager.initializePlayerTemporaryPermissions(user);
+        try {
+            userManager.initializeUser(player); // Loading the user registers its temporary permissions as well.
+        } catch (RuntimeException e) { // Failed loads aren't cached, so the next attempt goes back to the database.
+            getLogger().log(Level.SEVERE, "Failed to load " + player.getName() + "'s permissions.", e);
+            if (getConfig().getBoolean("kick-on-failure", true)) {
+                player.kickPlayer("OverPermissions couldn't load your permissions. Please try again in a moment.");
+            }
+        }
     }
 
-    void initPlayerUUID(Player player) {
-        uuidHandler.setNameUuid(player.getName(), player.getUniqueId());
+    void prefetchPlayer(String name, UUID uniqueId) {
+        try {
+            userManager.prefetchUser(name, uniqueId).get(PREFETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS); // Blocks the login thread, not the main thread.
+        } catch (TimeoutException e) {
+            getLogger().warning("Loading " + name + " took longer than " + PREFETCH_TIMEOUT_SECONDS + " seconds, they'll finish loading on join.");
+        } catch (ExecutionException e) {
+            getLogger().warning("Failed to load " + name + " before they joined, they'll be loaded on join instead: " + e.getCause());
+        } catch (RejectedExecutionException e) {
+            getLogger().warning("The executor was too busy to load " + name + " before they joined, they'll be loaded on join instead.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void discardPrefetchedPlayer(UUID uniqueId) {
+        userManager.discardPrefetchedUser(uniqueId);
     }
 
     private void initPlayers( ) {
         for (Player p : Bukkit.getOnlinePlayers()) {
-            initPlayerUUID(p);
             initPlayer(p);
         }
     }
@@ -226,8 +266,8 @@ public final class OverPermissions extends JavaPlugin {
         }
     }
 
-    void deinitPlayer(Player player) {
-        tempManager.cancelTemporaryPermissions(userManager.getPermissionUser(player));
+    void deinitPlayer(Player player) { // Temporary permissions stay registered for as long as the user is cached.
+        userManager.deinitializeUser(player);
         wildcardAction.deinitializePlayer(player);
     }
 
@@ -246,6 +286,12 @@ public final class OverPermissions extends JavaPlugin {
         if (exec != null) {
             exec.shutdown();
         }
+        if (tempManager != null) {
+            tempManager.shutdown();
+        }
+        if (groupManager != null) {
+            groupManager.shutdown();
+        }
         if (database != null) {
             try {
                 database.shutdown();
@@ -271,6 +317,13 @@ public final class OverPermissions extends JavaPlugin {
         return database;
     }
 
+    /**
+     * @return the pool of connections to the database, or null if the database doesn't use one.
+     */
+    public ConnectionPool getConnectionPool( ) {
+        return connectionPool;
+    }
+
     /**
      * @return the retriever/handler for player name <-> UUID relation ships
      */
@@ -281,7 +334,7 @@ public final class OverPermissions extends JavaPlugin {
     /**
      * @return the {@link ExecutorService} used by this plugin, with proper error recording.
      */
-    public ExecutorService getExecutor( ) {
+    public PluginExecutor getExecutor( ) {
         return exec;
     }
 
@@ -292,4 +345,8 @@ public final class OverPermissions extends JavaPlugin {
     public UserManager getUserManager( ) {
         return userManager;
     }
+
+    public TemporaryPermissionManager getTempManager( ) {
+        return tempManager;
+    }
 }
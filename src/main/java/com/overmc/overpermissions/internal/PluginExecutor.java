@@ -0,0 +1,141 @@
+package com.overmc.overpermissions.internal;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The executor that runs the plugin's database work, with a fixed amount of threads and a bounded queue.<br>
+ * Once the queue is full, new tasks are handled by the {@link RejectionPolicy}, so a burst of commands slows its callers down instead of piling up threads.<br>
+ * How long tasks wait in the queue and how long they run for are both recorded.
+ */
+public final class PluginExecutor extends ThreadPoolExecutor {
+    public enum RejectionPolicy {
+        /** Run the task in the thread that submitted it. */
+        CALLER_RUNS,
+        /** Throw a {@link RejectedExecutionException} from the submitting thread. */
+        ABORT
+    }
+
+    private final Logger logger;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public PluginExecutor(String name, Logger logger, int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        super(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactoryBuilder()
+                .setNameFormat("Plugin " + name + " pool thread %d").build());
+        Preconditions.checkNotNull(logger, "logger");
+        Preconditions.checkNotNull(rejectionPolicy, "rejection policy");
+        this.logger = logger;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(new CountingRejectionHandler((rejectionPolicy == RejectionPolicy.CALLER_RUNS) ? new CallerRunsPolicy() : new AbortPolicy()));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command, "command");
+        super.execute(new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof TimedTask) {
+            TimedTask task = (TimedTask) r;
+            task.startNanos = System.nanoTime();
+            queueWait.record(task.startNanos - task.submitNanos);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) { // This solution is taken from StackOverflow @ http://stackoverflow.com/questions/2248131/handling-exceptions-from-java-executorservice-tasks
+        super.afterExecute(r, t);
+        if (r instanceof TimedTask) {
+            TimedTask task = (TimedTask) r;
+            runTime.record(System.nanoTime() - task.startNanos);
+            r = task.delegate;
+        }
+        if (t == null && r instanceof Future<?>) {
+            try {
+                Future<?> future = (Future<?>) r;
+                if (future.isDone()) {
+                    future.get();
+                }
+            } catch (CancellationException ex) {
+                t = ex;
+            } catch (ExecutionException ex) {
+                t = ex.getCause();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt(); // Propegate
+            }
+        }
+        if (t != null) {
+            logger.log(Level.SEVERE, "Uncaught exception from the plugin's pool: " + t.getMessage(), t);
+        }
+    }
+
+    public int getQueueCapacity( ) {
+        return queueCapacity;
+    }
+
+    public RejectionPolicy getRejectionPolicy( ) {
+        return rejectionPolicy;
+    }
+
+    /**
+     * @return how many tasks were submitted while the queue was full, whether they were run by their caller or thrown away.
+     */
+    public long getRejectedCount( ) {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return how long tasks waited in the queue for a thread. Tasks run by their caller aren't counted.
+     */
+    public LatencyHistogram getQueueWaitHistogram( ) {
+        return queueWait;
+    }
+
+    public LatencyHistogram getRunTimeHistogram( ) {
+        return runTime;
+    }
+
+    private static final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long submitNanos = System.nanoTime();
+        private long startNanos; // Only touched by the thread running this task.
+
+        private TimedTask(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run( ) {
+            delegate.run();
+        }
+    }
+
+    private final class CountingRejectionHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+
+        private CountingRejectionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejectedCount.incrementAndGet();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+}
@@ -1,199 +1,164 @@
 package com.overmc.overpermissions.internal;
 
-import java.lang.ref.WeakReference;
-import java.util.Objects;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
-
-import com.google.common.collect.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.overmc.overpermissions.api.*;
-import com.overmc.overpermissions.internal.datasources.TemporaryPermissionEntityDataSource;
-import com.overmc.overpermissions.internal.datasources.TemporaryPermissionEntityDataSourceFactory;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityData;
 
 public class TemporaryPermissionManager {
-    private final OverPermissions plugin;
+    private static final int WHEEL_SIZE = 512;
 
-    private final ConcurrentMap<GlobalNodeKey, Integer> globalTaskIdMap = new ConcurrentHashMap<>();
-    private final Multimap<UUID, GlobalNodeKey> entityGlobalTaskMap = Multimaps.synchronizedMultimap(HashMultimap.<UUID, GlobalNodeKey> create());
+    private final OverPermissions plugin;
 
-    private final ConcurrentMap<WorldNodeKey, Integer> worldTaskIdMap = new ConcurrentHashMap<>();
-    private final Multimap<UUID, WorldNodeKey> entityWorldTaskMap = Multimaps.synchronizedMultimap(HashMultimap.<UUID, WorldNodeKey> create());
+    private final long resolutionMillis;
+    private final ExpirationWheel wheel;
+    private volatile ScheduledExecutorService scheduler;
 
-    private final TemporaryPermissionEntityDataSourceFactory sourceFactory;
+    // Expiry lag is how long after its expiration time a node was actually removed.
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastLagMillis;
 
-    public TemporaryPermissionManager(OverPermissions plugin, TemporaryPermissionEntityDataSourceFactory sourceFactory) {
+    /**
+     * @param resolutionMillis how often expirations are checked for, temporary permissions are removed at most this long after they expire.
+     */
+    public TemporaryPermissionManager(OverPermissions plugin, long resolutionMillis) {
+        Preconditions.checkArgument(resolutionMillis > 0, "resolution <= 0");
         this.plugin = plugin;
-        this.sourceFactory = sourceFactory;
-    }
-
-    // ms/s = 1000/1
-    // ticks/s = 20/1
-    private long convertMillisToTicks(long millis) {
-        return Math.max(0L, (millis / 1000L) * 20L);
+        this.resolutionMillis = resolutionMillis;
+        this.wheel = new ExpirationWheel(WHEEL_SIZE, resolutionMillis, System.currentTimeMillis());
     }
 
-    public void registerGlobalTemporaryPermission(final TemporaryPermissionEntity entity, TemporaryPermissionEntry entry) {
-        long deltaTime = entry.getExpirationTime() - System.currentTimeMillis();
-        final GlobalNodeKey globalKey = new GlobalNodeKey(entity.getUniqueId(), entry.getNode());
-        final WeakReference<TemporaryPermissionEntry> entryReference = new WeakReference<>(entry);
-
-        BukkitRunnable runnable = (new BukkitRunnable() {
+    /**
+     * Start expiring temporary permissions, they can be registered before this is called.<br>
+     * Expirations are driven by the system clock on their own thread, so they stay on time when the server's tick rate drops.
+     */
+    public void start( ) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("OverPermissions expiration thread").setDaemon(true).build());
+        scheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run( ) {
-                TemporaryPermissionEntry entry = entryReference.get();
-                if (entry == null) {
-                    plugin.getLogger().warning("Tried to process a node for an entity that doesn't exist anymore! Make sure to call cancelTemporaryPermissions!");
-                } else {
-                    entity.removeGlobalTempPermissionNode(entry.getNode());
-                }
-                if (!globalTaskIdMap.remove(globalKey, getTaskId())) {
-                    plugin.getLogger().warning("Tried to cancel an unknown task: " + getTaskId());
+                try {
+                    expire(System.currentTimeMillis());
+                } catch (RuntimeException e) { // An exception would stop every later run.
+                    plugin.getLogger().log(Level.SEVERE, "Failed to expire temporary permissions.", e);
                 }
             }
-        });
-
-        BukkitTask task = runnable.runTaskLaterAsynchronously(plugin, convertMillisToTicks(deltaTime));
-        globalTaskIdMap.put(globalKey, task.getTaskId());
-        entityGlobalTaskMap.put(entity.getUniqueId(), globalKey);
+        }, resolutionMillis, resolutionMillis, TimeUnit.MILLISECONDS);
     }
 
-    public boolean cancelGlobalTemporaryPermission(UniqueEntity entity, String node) {
-        final GlobalNodeKey globalKey = new GlobalNodeKey(entity.getUniqueId(), node);
-        if (globalTaskIdMap.remove(globalKey) != null) {
-            entityGlobalTaskMap.remove(entity.getUniqueId(), globalKey);
-            return true;
+    public void shutdown( ) {
+        ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler != null) {
+            currentScheduler.shutdownNow();
         }
-        return false;
     }
 
-    public void registerWorldTemporaryPermission(final TemporaryPermissionEntity entity, final String worldName, TemporaryPermissionEntry entry) {
-        long deltaTime = entry.getExpirationTime() - System.currentTimeMillis();
-        final WorldNodeKey worldKey = new WorldNodeKey(entity.getUniqueId(), worldName, entry.getNode());
-        final WeakReference<TemporaryPermissionEntry> entryReference = new WeakReference<>(entry);
-
-        BukkitRunnable runnable = (new BukkitRunnable() {
-            @Override
-            public void run( ) {
-                TemporaryPermissionEntry entry = entryReference.get();
-                if (entry == null) {
-                    plugin.getLogger().warning("Tried to process a node for an entity that doesn't exist anymore! Make sure to call cancelTemporaryPermissions!");
+    private void expire(long now) {
+        for (Map.Entry<TemporaryPermissionEntity, List<ExpirationWheel.Expiration>> e : wheel.advance(now).entrySet()) {
+            TemporaryNodeBatch.Builder batch = TemporaryNodeBatch.builder();
+            for (ExpirationWheel.Expiration expiration : e.getValue()) { // The batch only carries the nodes to be removed, their times aren't used.
+                if (expiration.getWorldName() == null) {
+                    batch.addGlobalNode(expiration.getNode(), 1L, TimeUnit.MILLISECONDS);
                 } else {
-                    entity.removeTempPermissionNode(entry.getNode(), worldName);
-                }
-                if (!worldTaskIdMap.remove(worldKey, getTaskId())) {
-                    plugin.getLogger().warning("Tried to cancel an unknown task: " + getTaskId());
+                    batch.addNode(expiration.getNode(), expiration.getWorldName(), 1L, TimeUnit.MILLISECONDS);
                 }
             }
-        });
-
-        BukkitTask task = runnable.runTaskLaterAsynchronously(plugin, convertMillisToTicks(deltaTime));
-        worldTaskIdMap.put(worldKey, task.getTaskId());
-        entityWorldTaskMap.put(entity.getUniqueId(), worldKey);
-    }
-
-    public boolean cancelWorldTemporaryPermission(UniqueEntity entity, String worldName, String node) {
-        final WorldNodeKey worldKey = new WorldNodeKey(entity.getUniqueId(), worldName, node);
-        if (worldTaskIdMap.remove(worldKey) != null) {
-            entityWorldTaskMap.remove(entity.getUniqueId(), worldKey);
-            return true;
-        }
-        return false;
-    }
-
-    public void cancelTemporaryPermissions(UniqueEntity entity) {
-        for (GlobalNodeKey key : entityGlobalTaskMap.removeAll(entity.getUniqueId())) {
-            plugin.getServer().getScheduler().cancelTask(globalTaskIdMap.remove(key).intValue());
-        }
-        for (WorldNodeKey key : entityWorldTaskMap.removeAll(entity.getUniqueId())) {
-            plugin.getServer().getScheduler().cancelTask(worldTaskIdMap.remove(key).intValue());
+            try {
+                e.getKey().removeBatchTempPermissionNodes(batch.build());
+            } catch (RuntimeException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to remove expired temporary permissions from " + e.getKey().getUniqueId(), ex);
+            }
+            long removedTime = System.currentTimeMillis();
+            for (ExpirationWheel.Expiration expiration : e.getValue()) {
+                recordLag(Math.max(0L, removedTime - expiration.getExpirationTime()));
+            }
         }
     }
 
-    private void initTempPerms(TemporaryPermissionEntity entity, TemporaryPermissionEntityDataSource source) {
-        TemporaryNodeBatch tempNodes = source.getTempPermissions();
-        for (TemporaryPermissionEntry e : tempNodes.getGlobalNodes()) {
-            registerGlobalTemporaryPermission(entity, e);
-        }
-        for (String worldName : tempNodes.getWorldNodes().keySet()) {
-            for (TemporaryPermissionEntry e : tempNodes.getWorldNodes().get(worldName)) {
-                registerWorldTemporaryPermission(entity, worldName, e);
+    private void recordLag(long lagMillis) {
+        expiredCount.incrementAndGet();
+        totalLagMillis.addAndGet(lagMillis);
+        lastLagMillis = lagMillis;
+        long max;
+        while ((max = maxLagMillis.get()) < lagMillis) {
+            if (maxLagMillis.compareAndSet(max, lagMillis)) {
+                break;
             }
         }
     }
 
-    public void initializeGroupTemporaryPermissions(PermissionGroup group) {
-        TemporaryPermissionEntityDataSource source = sourceFactory.createTempGroupDataSource(group.getName());
-        initTempPerms(group, source);
+    public long getResolutionMillis( ) {
+        return resolutionMillis;
     }
 
-    public void initializePlayerTemporaryPermissions(PermissionUser user) {
-        TemporaryPermissionEntityDataSource source = sourceFactory.createTempPlayerDataSource(user.getUniqueId());
-        initTempPerms(user, source);
+    /**
+     * @return the number of temporary permissions waiting to expire.
+     */
+    public int getScheduledCount( ) {
+        return wheel.size();
     }
 
     /**
-     * A class representing a global node and owner.
+     * @return the number of temporary permissions that have expired since the plugin started.
      */
-    private class GlobalNodeKey {
-        private final UUID uniqueId;
-        private final String node;
+    public long getExpiredCount( ) {
+        return expiredCount.get();
+    }
 
-        public GlobalNodeKey(UUID uniqueId, String node) {
-            this.uniqueId = uniqueId;
-            this.node = node;
-        }
+    public long getLastExpiryLagMillis( ) {
+        return lastLagMillis;
+    }
 
-        @Override
-        public int hashCode( ) {
-            return Objects.hash(uniqueId, node);
-        }
+    public long getMaxExpiryLagMillis( ) {
+        return maxLagMillis.get();
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == null) {
-                return false;
-            }
-            if (!(obj instanceof GlobalNodeKey)) {
-                return false;
-            }
-            GlobalNodeKey otherKey = (GlobalNodeKey) obj;
-            return Objects.equals(otherKey.uniqueId, uniqueId) && Objects.equals(otherKey.node, node);
-        }
+    public long getAverageExpiryLagMillis( ) {
+        long count = expiredCount.get();
+        return (count == 0) ? 0L : (totalLagMillis.get() / count);
+    }
+
+    public void registerGlobalTemporaryPermission(TemporaryPermissionEntity entity, TemporaryPermissionEntry entry) {
+        wheel.schedule(entity, null, entry.getNode(), entry.getExpirationTime());
+    }
+
+    public boolean cancelGlobalTemporaryPermission(UniqueEntity entity, String node) {
+        return wheel.cancel(entity.getUniqueId(), null, node);
+    }
+
+    public void registerWorldTemporaryPermission(TemporaryPermissionEntity entity, String worldName, TemporaryPermissionEntry entry) {
+        wheel.schedule(entity, worldName, entry.getNode(), entry.getExpirationTime());
+    }
+
+    public boolean cancelWorldTemporaryPermission(UniqueEntity entity, String worldName, String node) {
+        return wheel.cancel(entity.getUniqueId(), worldName, node);
+    }
+
+    public void cancelTemporaryPermissions(UniqueEntity entity) {
+        wheel.cancelAll(entity.getUniqueId());
     }
 
     /**
-     * A class representing a world node, world, and owner.
+     * Register an entity's temporary permissions from already loaded data, instead of reading them from the database.
      */
-    private class WorldNodeKey {
-        private final UUID uniqueId;
-        private final String worldName;
-        private final String node;
-
-        public WorldNodeKey(UUID uniqueId, String worldName, String node) {
-            this.uniqueId = uniqueId;
-            this.worldName = worldName;
-            this.node = node;
-        }
-
-        @Override
-        public int hashCode( ) {
-            return Objects.hash(uniqueId, worldName, node);
+    public void initializeTemporaryPermissions(TemporaryPermissionEntity entity, PermissionEntityData globalData, Map<String, PermissionEntityData> worldData) {
+        for (TemporaryPermissionEntry e : globalData.getTempPermissions()) {
+            registerGlobalTemporaryPermission(entity, e);
         }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == null) {
-                return false;
-            }
-            if (!(obj instanceof WorldNodeKey)) {
-                return false;
+        for (Map.Entry<String, PermissionEntityData> world : worldData.entrySet()) {
+            for (TemporaryPermissionEntry e : world.getValue().getTempPermissions()) {
+                registerWorldTemporaryPermission(entity, world.getKey(), e);
             }
-            WorldNodeKey otherKey = (WorldNodeKey) obj;
-            return Objects.equals(otherKey.uniqueId, uniqueId) && Objects.equals(otherKey.worldName, worldName) && Objects.equals(otherKey.node, node);
         }
     }
 }
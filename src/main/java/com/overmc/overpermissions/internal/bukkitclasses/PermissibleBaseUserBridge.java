@@ -3,7 +3,10 @@ package com.overmc.overpermissions.internal.bukkitclasses;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.api.PermissionState;
 import com.overmc.overpermissions.api.PermissionUser;
+import com.overmc.overpermissions.internal.localentities.LocalUser;
+import com.overmc.overpermissions.internal.localentities.LocalUserManager;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissibleBase;
 import org.bukkit.permissions.Permission;
@@ -12,30 +15,35 @@ import org.bukkit.permissions.PermissionAttachmentInfo;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.UUID;
 
 public class PermissibleBaseUserBridge extends PermissibleBase {
     private final Player player;
-    private final Callable<PermissionUser> userFetcher;
+    private final UUID uniqueId;
+    private final LocalUserManager userManager;
 
-    public PermissibleBaseUserBridge(Player player, Callable<PermissionUser> userFetcher) {
+    private volatile LocalUser user; // Kept until its manager detaches it, then fetched again.
+
+    public PermissibleBaseUserBridge(Player player, LocalUserManager userManager) {
         super(player);
         this.player = player;
-        this.userFetcher = userFetcher;
+        this.uniqueId = player.getUniqueId();
+        this.userManager = userManager;
     }
 
     protected PermissionUser getUser() {
-        try {
-            return userFetcher.call();
-        } catch (Exception e) {
-            throw new RuntimeException(e); // This should never happen in any reasonable implementation.
+        LocalUser currentUser = user;
+        if ((currentUser == null) || currentUser.isDetached()) {
+            currentUser = userManager.getPermissionUser(uniqueId);
+            user = currentUser;
         }
+        return currentUser;
     }
 
     @Override
     public boolean isPermissionSet(String permission) {
         Preconditions.checkNotNull(permission, "permission");
-        return getUser().hasPermission(permission, player.getWorld().getName()) || super.isPermissionSet(permission);
+        return getUser().getPermissionState(permission, player.getWorld().getName()).isSet() || super.isPermissionSet(permission);
     }
 
     @Override
@@ -47,10 +55,10 @@ public class PermissibleBaseUserBridge extends PermissibleBase {
     @Override
     public boolean hasPermission(String permission) {
         Preconditions.checkNotNull(permission, "permission");
-        String lowercasePermission = permission.toLowerCase();
         //Check overpermissions
-        if (getUser().hasPermission(lowercasePermission, player.getWorld().getName())) {
-            return getUser().getPermission(lowercasePermission, player.getWorld().getName());
+        PermissionState state = getUser().getPermissionState(permission, player.getWorld().getName());
+        if (state.isSet()) {
+            return state.getValue();
         }
         //Check bukkit permissions
         return super.hasPermission(permission);
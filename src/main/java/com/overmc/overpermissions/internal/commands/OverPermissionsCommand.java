@@ -8,8 +8,13 @@ import org.bukkit.entity.Player;
 
 import com.google.common.base.Joiner;
 import com.overmc.overpermissions.api.PermissionUser;
+import com.overmc.overpermissions.internal.LatencyHistogram;
 import com.overmc.overpermissions.internal.Messages;
 import com.overmc.overpermissions.internal.OverPermissions;
+import com.overmc.overpermissions.internal.PluginExecutor;
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.databases.ConnectionPool;
+import com.overmc.overpermissions.internal.databases.ConnectionPoolStats;
 
 // ./overpermissions ['debug'|'info']
 public class OverPermissionsCommand implements CommandExecutor {
@@ -40,6 +45,37 @@ public class OverPermissionsCommand implements CommandExecutor {
             if (args.length == 1) {
                 sender.sendMessage("debug commands: ");
                 sender.sendMessage("/overperms debug player [player]");
+                sender.sendMessage("/overperms debug temp");
+                sender.sendMessage("/overperms debug pool");
+                sender.sendMessage("/overperms debug executor");
+                return true;
+            }
+            else if ((args.length == 2) && "temp".equalsIgnoreCase(args[1])) {
+                TemporaryPermissionManager tempManager = plugin.getTempManager();
+                sender.sendMessage("Temporary permissions waiting to expire: " + tempManager.getScheduledCount() + ", expired: " + tempManager.getExpiredCount());
+                sender.sendMessage("Expiry resolution: " + tempManager.getResolutionMillis() + "ms");
+                sender.sendMessage("Expiry lag: " + tempManager.getLastExpiryLagMillis() + "ms last, " + tempManager.getAverageExpiryLagMillis() + "ms average, " + tempManager.getMaxExpiryLagMillis() + "ms max");
+                return true;
+            }
+            else if ((args.length == 2) && "pool".equalsIgnoreCase(args[1])) {
+                ConnectionPool connectionPool = plugin.getConnectionPool();
+                if (connectionPool == null) {
+                    sender.sendMessage("The database doesn't use a connection pool.");
+                    return true;
+                }
+                ConnectionPoolStats stats = connectionPool.getStats();
+                sender.sendMessage("Connections: " + stats.getActiveConnections() + " active, " + stats.getIdleConnections() + " idle, " + stats.getTotalConnections() + " total");
+                sender.sendMessage("Threads waiting for a connection: " + stats.getThreadsAwaitingConnection());
+                sender.sendMessage("Borrow time: " + String.format("%.2f", stats.getAverageBorrowMillis()) + "ms average, " + String.format("%.2f", stats.getMaxBorrowMillis()) + "ms max, over " + stats.getBorrowCount() + " connections");
+                return true;
+            }
+            else if ((args.length == 2) && "executor".equalsIgnoreCase(args[1])) {
+                PluginExecutor executor = plugin.getExecutor();
+                sender.sendMessage("Threads: " + executor.getActiveCount() + " active, " + executor.getPoolSize() + " started, " + executor.getMaximumPoolSize() + " max");
+                sender.sendMessage("Queue: " + executor.getQueue().size() + "/" + executor.getQueueCapacity() + ", " + executor.getCompletedTaskCount() + " tasks completed");
+                sender.sendMessage("Rejected tasks: " + executor.getRejectedCount() + " (" + executor.getRejectionPolicy() + ")");
+                sender.sendMessage("Queue wait: " + formatHistogram(executor.getQueueWaitHistogram()));
+                sender.sendMessage("Run time: " + formatHistogram(executor.getRunTimeHistogram()));
                 return true;
             }
             else if ((args.length == 3)) {
@@ -65,4 +101,9 @@ public class OverPermissionsCommand implements CommandExecutor {
         sender.sendMessage(Messages.getUsage(command));
         return true;
     }
+
+    private static String formatHistogram(LatencyHistogram histogram) {
+        return String.format("%.2fms average, %.2fms p50, %.2fms p99, %.2fms max, over %d tasks", histogram.getAverageMillis(), histogram.getPercentileMillis(50),
+                histogram.getPercentileMillis(99), histogram.getMaxMillis(), histogram.getCount());
+    }
 }
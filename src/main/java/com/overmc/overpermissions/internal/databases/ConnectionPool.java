@@ -7,6 +7,8 @@ import com.overmc.overpermissions.exceptions.DatabaseConnectionException;
 public interface ConnectionPool {
     /**Retrieve a regular connection to the database*/
     public Connection getConnection( ) throws DatabaseConnectionException;
+    /**Retrieve the current usage of this pool's connections*/
+    public ConnectionPoolStats getStats( );
     /**Shutdown this pool data source, clearing all required resources.*/
     public void shutdown( );
 }
@@ -0,0 +1,58 @@
+package com.overmc.overpermissions.internal.databases;
+
+/**
+ * A snapshot of how a {@link ConnectionPool}'s connections are being used. Counts that a pool can't report are -1.
+ */
+public final class ConnectionPoolStats {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int threadsAwaitingConnection;
+    private final long borrowCount;
+    private final double averageBorrowMillis;
+    private final double maxBorrowMillis;
+
+    public ConnectionPoolStats(int activeConnections, int idleConnections, int totalConnections, int threadsAwaitingConnection, long borrowCount, double averageBorrowMillis, double maxBorrowMillis) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.borrowCount = borrowCount;
+        this.averageBorrowMillis = averageBorrowMillis;
+        this.maxBorrowMillis = maxBorrowMillis;
+    }
+
+    public int getActiveConnections( ) {
+        return activeConnections;
+    }
+
+    public int getIdleConnections( ) {
+        return idleConnections;
+    }
+
+    public int getTotalConnections( ) {
+        return totalConnections;
+    }
+
+    public int getThreadsAwaitingConnection( ) {
+        return threadsAwaitingConnection;
+    }
+
+    /**
+     * @return how many connections have been handed out since the pool was created.
+     */
+    public long getBorrowCount( ) {
+        return borrowCount;
+    }
+
+    /**
+     * @return how long, on average, a thread waited to be handed a connection.
+     */
+    public double getAverageBorrowMillis( ) {
+        return averageBorrowMillis;
+    }
+
+    public double getMaxBorrowMillis( ) {
+        return maxBorrowMillis;
+    }
+}
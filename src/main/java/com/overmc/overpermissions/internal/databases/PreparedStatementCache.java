@@ -0,0 +1,116 @@
+package com.overmc.overpermissions.internal.databases;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Keeps one prepared statement per query for a connection that's shared between threads, evicting the least recently used query once it's full.<br>
+ * A cached statement is only handed to one thread at a time, a thread that asks for a query that's already in use gets a new statement that's closed as usual.
+ */
+final class PreparedStatementCache {
+    /**
+     * Matches queries with a generated parameter list, such as "IN (?, ?)" or "VALUES (?), (?)". Every list length is a different query, so they'd only push the fixed queries out.
+     */
+    private static final Pattern PARAMETER_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?|\\?\\s*\\)\\s*,\\s*\\(");
+
+    private final Connection owner;
+    private final Connection con;
+    private final Cache<String, CachedStatement> statements;
+
+    /**
+     * @param owner the connection that borrowed statements report as theirs.
+     * @param con the connection to prepare statements on.
+     * @param maximumSize the most queries to keep statements for, 0 disables the cache.
+     */
+    PreparedStatementCache(Connection owner, Connection con, int maximumSize) {
+        this.owner = owner;
+        this.con = con;
+        if (maximumSize > 0) {
+            this.statements = CacheBuilder.newBuilder()
+                    .concurrencyLevel(1) // A single segment keeps the eviction order exact.
+                    .maximumSize(maximumSize)
+                    .removalListener(new RemovalListener<String, CachedStatement>() {
+                        @Override
+                        public void onRemoval(RemovalNotification<String, CachedStatement> notification) {
+                            notification.getValue().evict();
+                        }
+                    })
+                    .build();
+        } else {
+            this.statements = null;
+        }
+    }
+
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (statements == null || PARAMETER_LIST.matcher(sql).find()) {
+            return con.prepareStatement(sql);
+        }
+        CachedStatement cached = statements.getIfPresent(sql);
+        if (cached == null) {
+            CachedStatement created = new CachedStatement(con.prepareStatement(sql));
+            cached = statements.asMap().putIfAbsent(sql, created);
+            if (cached == null) {
+                cached = created;
+            } else {
+                created.statement.close();
+            }
+        }
+        if (cached.inUse.compareAndSet(false, true)) {
+            return new ReusablePreparedStatement(owner, cached.statement, cached);
+        }
+        return con.prepareStatement(sql);
+    }
+
+    /**
+     * Close every cached statement, statements that are borrowed are closed once they're returned.
+     */
+    void close( ) {
+        if (statements != null) {
+            statements.invalidateAll();
+        }
+    }
+
+    static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final AtomicBoolean inUse = new AtomicBoolean();
+        private volatile boolean evicted;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * Hand the statement back, closing it if it was evicted while it was borrowed.
+         */
+        void release( ) {
+            inUse.set(false);
+            if (evicted) {
+                closeIfUnused();
+            }
+        }
+
+        private void evict( ) {
+            evicted = true;
+            closeIfUnused();
+        }
+
+        // Whichever of evict and release sees the other claims the statement, so it's closed exactly once.
+        private void closeIfUnused( ) {
+            if (inUse.compareAndSet(false, true)) {
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.overmc.overpermissions.internal.databases;
 
 import java.sql.*;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.overmc.overpermissions.exceptions.DatabaseConnectionException;
 import com.overmc.overpermissions.internal.databases.mysql.MySQLManager;
@@ -13,34 +16,91 @@ public class SingleConnectionPool implements ConnectionPool {
     private final String password;
     private final String url;
     private final String databaseName;
+    private final Map<String, String> driverProperties;
+    private final int statementCacheSize;
     
     private volatile UncloseableConnection databaseConnection;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalBorrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
     
     public SingleConnectionPool(String username, String password, String url, String databaseName) {
+        this(username, password, url, databaseName, Collections.<String, String> emptyMap(), 0);
+    }
+
+    /**
+     * @param statementCacheSize how many queries the connection keeps a prepared statement for, 0 prepares every statement again.
+     */
+    public SingleConnectionPool(String username, String password, String url, String databaseName, Map<String, String> driverProperties, int statementCacheSize) {
         this.username = username;
         this.password = password;
         this.url = url;
         this.databaseName = databaseName;
+        this.driverProperties = driverProperties;
+        this.statementCacheSize = statementCacheSize;
     }
     
     @Override
     public Connection getConnection( ) throws DatabaseConnectionException {
+        long startNanos = System.nanoTime();
         Connection cachedCon = databaseConnection;
         try {
             if (cachedCon == null || cachedCon.isClosed()) {
                 synchronized (this) {
                     cachedCon = databaseConnection;
                     if (cachedCon == null || cachedCon.isClosed()) {
-                        cachedCon = databaseConnection = new UncloseableConnection(DriverManager.getConnection(url + databaseName, username, password));
+                        Properties properties = new Properties();
+                        properties.putAll(driverProperties);
+                        properties.setProperty("user", username);
+                        properties.setProperty("password", password);
+                        cachedCon = databaseConnection = new UncloseableConnection(DriverManager.getConnection(url + databaseName, properties), statementCacheSize);
                     }
                 }
             }
         } catch (SQLException ex) {
             throw MySQLManager.handleSqlException(ex);
         }
+        recordBorrow(startNanos);
         return cachedCon;
     }
 
+    @Override
+    public ConnectionPoolStats getStats( ) {
+        UncloseableConnection cachedCon = databaseConnection;
+        int total;
+        try {
+            total = ((cachedCon == null) || cachedCon.isClosed()) ? 0 : 1;
+        } catch (SQLException ex) {
+            total = 0;
+        }
+        return createStats(total, 0, total, -1); // The connection is shared, so it's always active.
+    }
+
+    /**
+     * Record that a connection was handed out.
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the connection was requested.
+     */
+    protected final void recordBorrow(long startNanos) {
+        long borrowNanos = System.nanoTime() - startNanos;
+        borrowCount.incrementAndGet();
+        totalBorrowNanos.addAndGet(borrowNanos);
+        long max;
+        while (borrowNanos > (max = maxBorrowNanos.get())) {
+            if (maxBorrowNanos.compareAndSet(max, borrowNanos)) {
+                break;
+            }
+        }
+    }
+
+    protected final ConnectionPoolStats createStats(int active, int idle, int total, int waiting) {
+        long count = borrowCount.get();
+        double averageBorrowMillis = (count == 0) ? 0.0 : ((double) totalBorrowNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1));
+        double maxBorrowMillis = (double) maxBorrowNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+        return new ConnectionPoolStats(active, idle, total, waiting, count, averageBorrowMillis, maxBorrowMillis);
+    }
+
     @Override
     public void shutdown( ) {
         try {
@@ -54,12 +114,22 @@ public class SingleConnectionPool implements ConnectionPool {
 
     public static class UncloseableConnection implements Connection {
         private final Connection con;
+        private final PreparedStatementCache statementCache;
 
         public UncloseableConnection(Connection con) {
+            this(con, 0);
+        }
+
+        /**
+         * @param statementCacheSize how many queries to keep a prepared statement for, since this connection is reused for every query.
+         */
+        public UncloseableConnection(Connection con, int statementCacheSize) {
             this.con = con;
+            this.statementCache = new PreparedStatementCache(this, con, statementCacheSize);
         }
         
         public void closeConnection( ) throws SQLException { //An internal method to actually close the connection.
+            statementCache.close();
             con.close();
         }
 
@@ -250,7 +320,7 @@ public class SingleConnectionPool implements ConnectionPool {
 
         @Override
         public PreparedStatement prepareStatement(String sql) throws SQLException {
-            return con.prepareStatement(sql);
+            return statementCache.prepareStatement(sql);
         }
 
         @Override
@@ -0,0 +1,110 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.overmc.overpermissions.internal.databases.Database;
+import com.overmc.overpermissions.internal.datasources.*;
+
+/**
+ * A database that keeps everything in memory, so nothing is saved once it's shut down.<br>
+ * This never does any I/O, which makes it suited to tests, benchmarks and single servers that don't need to keep their permissions.
+ */
+public final class MemoryDatabase implements Database {
+    private final String defaultGroup;
+    private final UUIDHandler uuidHandler;
+
+    private final ConcurrentMap<String, MemoryGroup> groups = new ConcurrentHashMap<>(); // Keyed by lower case name
+    private final ConcurrentMap<UUID, MemoryEntity> users = new ConcurrentHashMap<>();
+
+    public MemoryDatabase(String defaultGroup, boolean forceOnlineMode) {
+        Preconditions.checkNotNull(defaultGroup, "default group");
+        this.defaultGroup = defaultGroup;
+        this.uuidHandler = new MemoryUUIDHandler(forceOnlineMode);
+        createGroup(defaultGroup, 0);
+    }
+
+    MemoryGroup getGroup(String name) {
+        return groups.get(name.toLowerCase());
+    }
+
+    Collection<MemoryGroup> getGroups( ) {
+        return new ArrayList<>(groups.values());
+    }
+
+    void createGroup(String name, int priority) {
+        groups.putIfAbsent(name.toLowerCase(), new MemoryGroup(name, priority));
+    }
+
+    void deleteGroup(String name) {
+        MemoryGroup group = groups.remove(name.toLowerCase());
+        if (group == null) {
+            return;
+        }
+        for (MemoryGroup other : groups.values()) {
+            other.removeParent(name);
+        }
+        for (MemoryEntity user : users.values()) { // Users are moved to the default group once their group is gone.
+            if (user.hasParent(name)) {
+                user.removeParent(name);
+                user.addParent(defaultGroup);
+            }
+        }
+    }
+
+    MemoryEntity getUser(UUID uuid) {
+        return users.get(uuid);
+    }
+
+    MemoryEntity getOrCreateUser(UUID uuid) {
+        MemoryEntity user = users.get(uuid);
+        if (user == null) {
+            MemoryEntity newUser = new MemoryEntity();
+            user = users.putIfAbsent(uuid, newUser);
+            if (user == null) {
+                user = newUser;
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public GroupDataSource createGroupDataSource(String groupName) {
+        return new MemoryGroupDataSource(this, groupName);
+    }
+
+    @Override
+    public GroupManagerDataSource createGroupManagerDataSource( ) {
+        return new MemoryGroupManagerDataSource(this, defaultGroup);
+    }
+
+    @Override
+    public UserDataSource createUserDataSource(UUID uuid) {
+        return new MemoryUserDataSource(this, uuid);
+    }
+
+    @Override
+    public TemporaryPermissionEntityDataSource createTempGroupDataSource(String groupName) {
+        return new MemoryTempDataSource(new MemoryGroupDataSource(this, groupName));
+    }
+
+    @Override
+    public TemporaryPermissionEntityDataSource createTempPlayerDataSource(UUID playerUniqueId) {
+        return new MemoryTempDataSource(new MemoryUserDataSource(this, playerUniqueId));
+    }
+
+    @Override
+    public UUIDHandler getUUIDHandler( ) {
+        return uuidHandler;
+    }
+
+    @Override
+    public void shutdown( ) {
+        groups.clear();
+        users.clear();
+    }
+}
@@ -0,0 +1,74 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A stored user or group, with its global data, its data in each world, and the names of its parents.
+ */
+class MemoryEntity {
+    private final MemoryEntityData globalData = new MemoryEntityData();
+    private final ConcurrentMap<String, MemoryEntityData> worlds = new ConcurrentHashMap<>(); // Keyed by lower case world name
+    private final List<String> parents = new CopyOnWriteArrayList<>();
+
+    MemoryEntityData getGlobalData( ) {
+        return globalData;
+    }
+
+    /**
+     * @return the data stored in the specified world, or null if there isn't any and it wasn't meant to be created.
+     */
+    MemoryEntityData getWorldData(String worldName, boolean create) {
+        worldName = worldName.toLowerCase();
+        MemoryEntityData world = worlds.get(worldName);
+        if ((world == null) && create) {
+            MemoryEntityData newWorld = new MemoryEntityData();
+            world = worlds.putIfAbsent(worldName, newWorld);
+            if (world == null) {
+                world = newWorld;
+            }
+        }
+        return world;
+    }
+
+    Map<String, MemoryEntityData> getWorlds( ) {
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    List<String> getParents( ) {
+        return Collections.unmodifiableList(parents);
+    }
+
+    // Parents are only ever written through these, so that names stay unique ignoring case.
+    synchronized void addParent(String parentName) {
+        if (!hasParent(parentName)) {
+            parents.add(parentName);
+        }
+    }
+
+    synchronized void removeParent(String parentName) {
+        for (String parent : parents) {
+            if (parent.equalsIgnoreCase(parentName)) {
+                parents.remove(parent);
+            }
+        }
+    }
+
+    synchronized void setParent(String parentName) {
+        parents.clear();
+        parents.add(parentName);
+    }
+
+    boolean hasParent(String parentName) {
+        for (String parent : parents) {
+            if (parent.equalsIgnoreCase(parentName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
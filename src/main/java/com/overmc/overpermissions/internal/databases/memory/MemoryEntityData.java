@@ -0,0 +1,85 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityData;
+
+/**
+ * The stored permissions, temporary permissions and metadata of an entity, either globally or in a single world.<br>
+ * Nodes are matched case insensitively, like the MySQL tables.
+ */
+final class MemoryEntityData {
+    private final ConcurrentMap<String, String> permissions = new ConcurrentHashMap<>(); // Keyed by lower case node
+    private final ConcurrentMap<String, TemporaryPermissionEntry> tempPermissions = new ConcurrentHashMap<>(); // ^
+    private final ConcurrentMap<String, String> metadata = new ConcurrentHashMap<>();
+
+    void addPermission(String permissionNode) {
+        permissions.putIfAbsent(permissionNode.toLowerCase(), permissionNode);
+    }
+
+    void removePermission(String permissionNode) {
+        permissions.remove(permissionNode.toLowerCase());
+    }
+
+    void addTempPermission(TemporaryPermissionEntry entry) {
+        tempPermissions.putIfAbsent(entry.getNode().toLowerCase(), entry);
+    }
+
+    void removeTempPermission(String permissionNode) {
+        tempPermissions.remove(permissionNode.toLowerCase());
+    }
+
+    void setMeta(String key, String value) {
+        if (value == null) {
+            metadata.remove(key);
+        } else {
+            metadata.put(key, value);
+        }
+    }
+
+    Collection<String> getPermissions( ) {
+        return new ArrayList<>(permissions.values());
+    }
+
+    /**
+     * @return every temporary permission that hasn't expired by the specified time.
+     */
+    List<TemporaryPermissionEntry> getTempPermissions(long currentTime) {
+        List<TemporaryPermissionEntry> ret = new ArrayList<>();
+        for (TemporaryPermissionEntry e : tempPermissions.values()) {
+            if (e.getExpirationTime() >= currentTime) {
+                ret.add(e);
+            } else {
+                tempPermissions.remove(e.getNode().toLowerCase(), e); // Nothing else purges expired permissions.
+            }
+        }
+        return ret;
+    }
+
+    Map<String, String> getMetadata( ) {
+        return new HashMap<>(metadata);
+    }
+
+    boolean isEmpty( ) {
+        return permissions.isEmpty() && tempPermissions.isEmpty() && metadata.isEmpty();
+    }
+
+    void copyTo(PermissionEntityData data, long currentTime) {
+        for (String node : permissions.values()) {
+            data.addPermission(node);
+        }
+        for (TemporaryPermissionEntry e : getTempPermissions(currentTime)) {
+            data.addTempPermission(e);
+        }
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            data.setMeta(entry.getKey(), entry.getValue());
+        }
+    }
+}
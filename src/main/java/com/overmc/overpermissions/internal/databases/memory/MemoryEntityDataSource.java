@@ -0,0 +1,129 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import com.overmc.overpermissions.api.MetadataEntry;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+
+/**
+ * A data source for the data of a single stored entity, which is looked up on every call so that it sees the entity being created or deleted.
+ */
+abstract class MemoryEntityDataSource implements PermissionEntityDataSource {
+    /**
+     * @param create whether the entity should be created if it isn't stored yet.
+     * @return the stored entity, or null if there isn't one and it wasn't meant to be created.
+     */
+    abstract MemoryEntity getEntity(boolean create);
+
+    /**
+     * @return the data this source reads and writes, or null if there isn't any and it wasn't meant to be created.
+     */
+    MemoryEntityData getData(boolean create) {
+        MemoryEntity entity = getEntity(create);
+        return (entity == null) ? null : entity.getGlobalData();
+    }
+
+    @Override
+    public Collection<String> getPermissions( ) {
+        MemoryEntityData data = getData(false);
+        return (data == null) ? Collections.<String> emptyList() : data.getPermissions();
+    }
+
+    @Override
+    public Collection<TemporaryPermissionEntry> getTempPermissions( ) {
+        MemoryEntityData data = getData(false);
+        return (data == null) ? Collections.<TemporaryPermissionEntry> emptyList() : data.getTempPermissions(System.currentTimeMillis());
+    }
+
+    @Override
+    public Map<String, String> getMetadata( ) {
+        MemoryEntityData data = getData(false);
+        return (data == null) ? Collections.<String, String> emptyMap() : data.getMetadata();
+    }
+
+    @Override
+    public void addPermission(String permission) {
+        getData(true).addPermission(permission);
+    }
+
+    @Override
+    public void addPermissions(Iterable<String> permissions) {
+        MemoryEntityData data = getData(true);
+        for (String permission : permissions) {
+            data.addPermission(permission);
+        }
+    }
+
+    @Override
+    public void removePermission(String permission) {
+        MemoryEntityData data = getData(false);
+        if (data != null) {
+            data.removePermission(permission);
+        }
+    }
+
+    @Override
+    public void removePermissions(Iterable<String> permissions) {
+        MemoryEntityData data = getData(false);
+        if (data != null) {
+            for (String permission : permissions) {
+                data.removePermission(permission);
+            }
+        }
+    }
+
+    @Override
+    public void addTempPermission(String permission, long timeInMillis) {
+        getData(true).addTempPermission(new TemporaryPermissionEntry(permission, timeInMillis));
+    }
+
+    @Override
+    public void addTempPermissions(Iterable<TemporaryPermissionEntry> permissions) {
+        MemoryEntityData data = getData(true);
+        for (TemporaryPermissionEntry e : permissions) {
+            data.addTempPermission(e);
+        }
+    }
+
+    @Override
+    public void removeTempPermission(String permission) {
+        MemoryEntityData data = getData(false);
+        if (data != null) {
+            data.removeTempPermission(permission);
+        }
+    }
+
+    @Override
+    public void removeTempPermissions(Iterable<TemporaryPermissionEntry> permissions) {
+        MemoryEntityData data = getData(false);
+        if (data != null) {
+            for (TemporaryPermissionEntry e : permissions) {
+                data.removeTempPermission(e.getNode());
+            }
+        }
+    }
+
+    @Override
+    public void setMeta(String key, String value) {
+        getData(true).setMeta(key, value);
+    }
+
+    @Override
+    public void removeMeta(String key) {
+        MemoryEntityData data = getData(false);
+        if (data != null) {
+            data.setMeta(key, null);
+        }
+    }
+
+    @Override
+    public void setMetaEntries(Iterable<MetadataEntry> entries) {
+        MemoryEntityData data = getData(true);
+        for (MetadataEntry e : entries) {
+            data.setMeta(e.getKey(), e.getValue()); // A null value removes the entry.
+        }
+    }
+}
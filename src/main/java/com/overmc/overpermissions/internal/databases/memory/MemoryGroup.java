@@ -0,0 +1,19 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+final class MemoryGroup extends MemoryEntity {
+    private final String name;
+    private final int priority;
+
+    MemoryGroup(String name, int priority) {
+        this.name = name;
+        this.priority = priority;
+    }
+
+    String getName( ) {
+        return name;
+    }
+
+    int getPriority( ) {
+        return priority;
+    }
+}
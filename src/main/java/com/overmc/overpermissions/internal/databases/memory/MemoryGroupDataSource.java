@@ -0,0 +1,78 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.internal.datasources.GroupDataSource;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+
+public class MemoryGroupDataSource extends MemoryEntityDataSource implements GroupDataSource {
+    private final MemoryDatabase database;
+    private final String groupName;
+
+    public MemoryGroupDataSource(MemoryDatabase database, String groupName) {
+        this.database = database;
+        this.groupName = groupName;
+    }
+
+    @Override
+    MemoryEntity getEntity(boolean create) {
+        MemoryGroup group = database.getGroup(groupName);
+        if ((group == null) && create) {
+            return new MemoryGroup(groupName, 0); // The group was deleted, so like a database row its changes go nowhere.
+        }
+        return group;
+    }
+
+    @Override
+    public int getPriority( ) {
+        MemoryGroup group = database.getGroup(groupName);
+        return (group == null) ? 0 : group.getPriority();
+    }
+
+    @Override
+    public void addParent(PermissionGroup parent) {
+        if (database.getGroup(parent.getName()) != null) {
+            getEntity(true).addParent(parent.getName());
+        }
+    }
+
+    @Override
+    public void removeParent(PermissionGroup parent) {
+        getEntity(true).removeParent(parent.getName());
+    }
+
+    @Override
+    public void addChild(PermissionGroup child) {
+        // Children are stored as their parents.
+    }
+
+    @Override
+    public void removeChild(PermissionGroup child) {
+        // ^
+    }
+
+    @Override
+    public Collection<String> getParents( ) {
+        MemoryEntity group = getEntity(false);
+        return (group == null) ? new ArrayList<String>() : new ArrayList<>(group.getParents());
+    }
+
+    @Override
+    public Collection<String> getChildren( ) {
+        List<String> ret = new ArrayList<>();
+        for (MemoryGroup group : database.getGroups()) {
+            if (group.hasParent(groupName)) {
+                ret.add(group.getName());
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public PermissionEntityDataSource createWorldDataSource(String worldName) {
+        return new MemoryWorldDataSource(this, worldName);
+    }
+}
@@ -0,0 +1,68 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData.GroupData;
+import com.overmc.overpermissions.internal.datasources.GroupManagerDataSource;
+
+public class MemoryGroupManagerDataSource implements GroupManagerDataSource {
+    private final MemoryDatabase database;
+    private final String defaultGroup;
+
+    public MemoryGroupManagerDataSource(MemoryDatabase database, String defaultGroup) {
+        this.database = database;
+        this.defaultGroup = defaultGroup;
+    }
+
+    @Override
+    public Collection<GroupDataEntry> getGroupEntries( ) {
+        ArrayList<GroupDataEntry> groups = new ArrayList<GroupDataEntry>();
+        for (MemoryGroup group : database.getGroups()) {
+            groups.add(new GroupDataEntry(group.getName(), group.getPriority()));
+        }
+        return groups;
+    }
+
+    @Override
+    public BulkGroupData getAllGroupData( ) {
+        BulkGroupData data = new BulkGroupData();
+        long startTime = System.currentTimeMillis();
+        Collection<MemoryGroup> groups = database.getGroups();
+        for (MemoryGroup group : groups) {
+            GroupData groupData = data.addGroup(group.getName(), group.getPriority());
+            group.getGlobalData().copyTo(groupData, startTime);
+            for (Map.Entry<String, MemoryEntityData> entry : group.getWorlds().entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    entry.getValue().copyTo(groupData.getOrCreateWorld(entry.getKey()), startTime);
+                }
+            }
+        }
+        for (MemoryGroup group : groups) {
+            GroupData groupData = data.getGroup(group.getName());
+            for (String parentName : group.getParents()) {
+                GroupData parent = data.getGroup(parentName);
+                if (parent != null) {
+                    groupData.addParent(parent.getName());
+                    parent.addChild(groupData.getName());
+                }
+            }
+        }
+        data.recordPhase("groups", System.currentTimeMillis() - startTime);
+        return data;
+    }
+
+    @Override
+    public void createGroup(String name, int priority) {
+        database.createGroup(name, priority);
+    }
+
+    @Override
+    public void deleteGroup(String name) {
+        Preconditions.checkArgument(!defaultGroup.equals(name), "You can't delete the default group!");
+        database.deleteGroup(name);
+    }
+}
@@ -0,0 +1,39 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.overmc.overpermissions.api.TemporaryNodeBatch;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.datasources.TemporaryPermissionEntityDataSource;
+
+final class MemoryTempDataSource implements TemporaryPermissionEntityDataSource {
+    private final MemoryEntityDataSource source;
+
+    MemoryTempDataSource(MemoryEntityDataSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public TemporaryNodeBatch getTempPermissions( ) {
+        TemporaryNodeBatch.Builder builder = TemporaryNodeBatch.builder();
+        MemoryEntity entity = source.getEntity(false);
+        if (entity == null) {
+            return builder.build();
+        }
+        long currentTime = System.currentTimeMillis();
+        for (TemporaryPermissionEntry e : entity.getGlobalData().getTempPermissions(currentTime)) {
+            if (e.getExpirationTime() > currentTime) {
+                builder.addGlobalNode(e.getNode(), e.getExpirationTime() - currentTime, TimeUnit.MILLISECONDS);
+            }
+        }
+        for (Map.Entry<String, MemoryEntityData> world : entity.getWorlds().entrySet()) {
+            for (TemporaryPermissionEntry e : world.getValue().getTempPermissions(currentTime)) {
+                if (e.getExpirationTime() > currentTime) {
+                    builder.addNode(e.getNode(), world.getKey(), e.getExpirationTime() - currentTime, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
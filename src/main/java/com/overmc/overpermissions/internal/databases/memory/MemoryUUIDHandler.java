@@ -0,0 +1,32 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.overmc.overpermissions.internal.databases.AbstractUUIDDataSource;
+
+public class MemoryUUIDHandler extends AbstractUUIDDataSource {
+    private final ConcurrentMap<String, UUID> nameUuids = new ConcurrentHashMap<>(); // Keyed by lower case name
+    private final ConcurrentMap<UUID, String> lastSeenNames = new ConcurrentHashMap<>();
+
+    public MemoryUUIDHandler(boolean forceOnlineMode) {
+        super(forceOnlineMode);
+    }
+
+    @Override
+    public void setNameUuid(String name, UUID uuid) {
+        nameUuids.put(name.toLowerCase(), uuid);
+        lastSeenNames.put(uuid, name);
+    }
+
+    @Override
+    public UUID getDatabaseNameUuid(String name) {
+        return nameUuids.get(name.toLowerCase());
+    }
+
+    @Override
+    public String getLastSeenName(UUID uuid) {
+        return lastSeenNames.get(uuid);
+    }
+}
@@ -0,0 +1,84 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+import com.overmc.overpermissions.internal.datasources.UserData;
+import com.overmc.overpermissions.internal.datasources.UserDataSource;
+
+public class MemoryUserDataSource extends MemoryEntityDataSource implements UserDataSource {
+    private final MemoryDatabase database;
+    private final UUID uuid;
+
+    public MemoryUserDataSource(MemoryDatabase database, UUID uuid) {
+        this.database = database;
+        this.uuid = uuid;
+    }
+
+    @Override
+    MemoryEntity getEntity(boolean create) {
+        return create ? database.getOrCreateUser(uuid) : database.getUser(uuid);
+    }
+
+    @Override
+    public void addParent(PermissionGroup parent) {
+        if (database.getGroup(parent.getName()) != null) {
+            getEntity(true).addParent(parent.getName());
+        }
+    }
+
+    @Override
+    public void removeParent(PermissionGroup parent) {
+        MemoryEntity user = getEntity(false);
+        if (user != null) {
+            user.removeParent(parent.getName());
+        }
+    }
+
+    @Override
+    public void setParent(PermissionGroup parent) {
+        if (database.getGroup(parent.getName()) != null) {
+            getEntity(true).setParent(parent.getName());
+        }
+    }
+
+    @Override
+    public Collection<String> getParents( ) {
+        MemoryEntity user = getEntity(false);
+        return (user == null) ? new ArrayList<String>() : new ArrayList<>(user.getParents());
+    }
+
+    @Override
+    public boolean doesUserExist( ) {
+        return getEntity(false) != null;
+    }
+
+    @Override
+    public UserData getAllData( ) {
+        UserData data = new UserData();
+        MemoryEntity user = getEntity(false);
+        if (user == null) {
+            return data;
+        }
+        long currentTime = System.currentTimeMillis();
+        user.getGlobalData().copyTo(data, currentTime);
+        for (Map.Entry<String, MemoryEntityData> entry : user.getWorlds().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                entry.getValue().copyTo(data.getOrCreateWorld(entry.getKey()), currentTime);
+            }
+        }
+        for (String parent : user.getParents()) {
+            data.addParent(parent);
+        }
+        return data;
+    }
+
+    @Override
+    public PermissionEntityDataSource createWorldDataSource(String worldName) {
+        return new MemoryWorldDataSource(this, worldName);
+    }
+}
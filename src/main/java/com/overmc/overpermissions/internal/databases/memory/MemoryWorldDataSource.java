@@ -0,0 +1,22 @@
+package com.overmc.overpermissions.internal.databases.memory;
+
+final class MemoryWorldDataSource extends MemoryEntityDataSource {
+    private final MemoryEntityDataSource owner;
+    private final String worldName;
+
+    MemoryWorldDataSource(MemoryEntityDataSource owner, String worldName) {
+        this.owner = owner;
+        this.worldName = worldName;
+    }
+
+    @Override
+    MemoryEntity getEntity(boolean create) {
+        return owner.getEntity(create);
+    }
+
+    @Override
+    MemoryEntityData getData(boolean create) {
+        MemoryEntity entity = getEntity(create);
+        return (entity == null) ? null : entity.getWorldData(worldName, create);
+    }
+}
@@ -0,0 +1,52 @@
+package com.overmc.overpermissions.internal.databases.mysql;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How the MySQL driver sends statements, shared by every kind of connection pool.
+ */
+public final class MySQLDriverSettings {
+    private static final MySQLDriverSettings DEFAULT_SETTINGS = new MySQLDriverSettings(true, true, 250);
+
+    private final boolean rewriteBatchedStatements;
+    private final boolean serverPreparedStatements;
+    private final int statementCacheSize;
+
+    /**
+     * @param rewriteBatchedStatements whether a batch should be sent as a single multi-row statement, instead of a round trip per row.
+     * @param serverPreparedStatements whether statements should be prepared by the server, so that only their parameters are sent each time they're executed.
+     * @param statementCacheSize how many prepared statements each connection keeps, 0 disables the cache.
+     */
+    public MySQLDriverSettings(boolean rewriteBatchedStatements, boolean serverPreparedStatements, int statementCacheSize) {
+        Preconditions.checkArgument(statementCacheSize >= 0, "statement cache size can't be negative");
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+        this.serverPreparedStatements = serverPreparedStatements;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static MySQLDriverSettings defaults( ) {
+        return DEFAULT_SETTINGS;
+    }
+
+    public int getStatementCacheSize( ) {
+        return statementCacheSize;
+    }
+
+    /**
+     * @return the driver properties for these settings.
+     */
+    public Map<String, String> getProperties( ) {
+        Map<String, String> ret = new LinkedHashMap<>();
+        ret.put("rewriteBatchedStatements", Boolean.toString(rewriteBatchedStatements));
+        ret.put("useServerPrepStmts", Boolean.toString(serverPreparedStatements));
+        ret.put("cachePrepStmts", Boolean.toString(statementCacheSize > 0));
+        ret.put("prepStmtCacheSize", Integer.toString(statementCacheSize));
+        ret.put("prepStmtCacheSqlLimit", "1024");
+        ret.put("cacheServerConfiguration", "true");
+        return Collections.unmodifiableMap(ret);
+    }
+}
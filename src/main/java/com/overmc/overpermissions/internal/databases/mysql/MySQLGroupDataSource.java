@@ -34,6 +34,10 @@ public class MySQLGroupDataSource implements GroupDataSource {
     }
 
     private int readDatabaseGroupUid( ) throws DatabaseConnectionException {
+        int cachedUid = sqlManager.getCachedGroupUid(groupName);
+        if (cachedUid != -1) {
+            return cachedUid;
+        }
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
             pst = con.prepareStatement("SELECT uid FROM Permission_Groups WHERE name = ?");
@@ -136,8 +140,8 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void addPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Permissions(permission_uid, group_uid) VALUES (select_or_insert_permission(?), ?)");
-            pst.setString(1, permissionNode);
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Permissions(permission_uid, group_uid) VALUES (?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
             pst.setInt(2, getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -151,13 +155,17 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void addPermissions(Iterable<String> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Permissions(permission_uid, group_uid) VALUES (select_or_insert_permission(?), ?)");
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Permissions(permission_uid, group_uid) VALUES (?, ?)");
             pst.setInt(2, getUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
+                pst.setInt(1, permissionUids.get(node));
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -169,8 +177,12 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void removePermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_Global_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND group_uid=?");
-            pst.setString(1, permissionNode);
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
+            pst = con.prepareStatement("DELETE FROM Group_Global_Permissions WHERE permission_uid=? AND group_uid=?");
+            pst.setInt(1, permissionUid);
             pst.setInt(2, getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -184,13 +196,20 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void removePermissions(Iterable<String> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_Global_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND group_uid=?");
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("DELETE FROM Group_Global_Permissions WHERE permission_uid=? AND group_uid=?");
             pst.setInt(2, getUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
-                pst.addBatch();
+                Integer permissionUid = permissionUids.get(node);
+                if (permissionUid != null) {
+                    pst.setInt(1, permissionUid);
+                    pst.addBatch();
+                }
+            }
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -202,8 +221,8 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void addTempPermission(String permissionNode, long timeInMillis) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Temporary_Permissions(permission_uid, group_uid, timeout) VALUES (select_or_insert_permission(?), ?, ?)");
-            pst.setString(1, permissionNode);
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Temporary_Permissions(permission_uid, group_uid, timeout) VALUES (?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
             pst.setInt(2, getUid());
             pst.setLong(3, timeInMillis);
             pst.executeUpdate();
@@ -218,14 +237,18 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void addTempPermissions(Iterable<TemporaryPermissionEntry> entries) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Temporary_Permissions(permission_uid, group_uid, timeout) VALUES (select_or_insert_permission(?), ?, ?)");
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, MySQLManager.getNodes(entries));
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_Global_Temporary_Permissions(permission_uid, group_uid, timeout) VALUES (?, ?, ?)");
             pst.setInt(2, getUid());
             for (TemporaryPermissionEntry e : entries) {
-                pst.setString(1, e.getNode());
+                pst.setInt(1, permissionUids.get(e.getNode()));
                 pst.setLong(3, e.getExpirationTime());
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -237,8 +260,12 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void removeTempPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_Global_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND group_uid=?");
-            pst.setString(1, permissionNode);
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
+            pst = con.prepareStatement("DELETE FROM Group_Global_Temporary_Permissions WHERE permission_uid=? AND group_uid=?");
+            pst.setInt(1, permissionUid);
             pst.setInt(2, getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -252,13 +279,20 @@ public class MySQLGroupDataSource implements GroupDataSource {
     public void removeTempPermissions(Iterable<TemporaryPermissionEntry> entries) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_Global_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND group_uid=?");
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, MySQLManager.getNodes(entries));
+            pst = con.prepareStatement("DELETE FROM Group_Global_Temporary_Permissions WHERE permission_uid=? AND group_uid=?");
             pst.setInt(2, getUid());
             for (TemporaryPermissionEntry e : entries) {
-                pst.setString(1, e.getNode());
-                pst.addBatch();
+                Integer permissionUid = permissionUids.get(e.getNode());
+                if (permissionUid != null) {
+                    pst.setInt(1, permissionUid);
+                    pst.addBatch();
+                }
+            }
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -318,8 +352,11 @@ public class MySQLGroupDataSource implements GroupDataSource {
                     insertStatement.addBatch();
                 }
             }
-            insertStatement.executeBatch();
-            deleteStatement.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                insertStatement.executeBatch();
+                deleteStatement.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -1,6 +1,9 @@
 package com.overmc.overpermissions.internal.databases.mysql;
 
 import com.google.common.base.Preconditions;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData.GroupData;
 import com.overmc.overpermissions.internal.datasources.GroupManagerDataSource;
 
 import java.sql.Connection;
@@ -9,6 +12,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import static com.overmc.overpermissions.internal.databases.mysql.MySQLManager.attemptClose;
 
@@ -39,6 +44,131 @@ public class MySQLGroupManagerDataSource implements GroupManagerDataSource {
         return groups;
     }
 
+    @Override
+    public BulkGroupData getAllGroupData( ) {
+        BulkGroupData data = new BulkGroupData();
+        Map<Integer, GroupData> groupsByUid = new HashMap<>();
+        PreparedStatement pst = null;
+        try(Connection con = sqlManager.getConnection()) {
+            long startTime = System.currentTimeMillis();
+            pst = con.prepareStatement("SELECT uid, name, priority FROM Permission_Groups");
+            ResultSet rs = pst.executeQuery();
+            while (rs.next()) {
+                int uid = rs.getInt("uid");
+                String name = rs.getString("name");
+                groupsByUid.put(uid, data.addGroup(name, rs.getInt("priority")));
+                sqlManager.cacheGroupUid(name, uid);
+            }
+            pst.close();
+            startTime = recordPhase(data, "groups", startTime);
+
+            pst = con.prepareStatement("SELECT group_uid, parent_uid FROM Group_Parents");
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                GroupData parent = groupsByUid.get(rs.getInt("parent_uid"));
+                if ((group != null) && (parent != null)) {
+                    group.addParent(parent.getName());
+                    parent.addChild(group.getName());
+                }
+            }
+            pst.close();
+            startTime = recordPhase(data, "parents", startTime);
+
+            pst = con.prepareStatement(""
+                    + "SELECT group_uid, permission_node "
+                    + "FROM Group_Global_Permissions "
+                    + "INNER JOIN Permissions ON Group_Global_Permissions.permission_uid=Permissions.uid");
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.addPermission(rs.getString("permission_node"));
+                }
+            }
+            pst.close();
+            pst = con.prepareStatement(""
+                    + "SELECT group_uid, name, permission_node "
+                    + "FROM Group_World_Permissions "
+                    + "INNER JOIN Permissions ON Group_World_Permissions.permission_uid=Permissions.uid "
+                    + "INNER JOIN Worlds ON Group_World_Permissions.world_uid=Worlds.uid");
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.getOrCreateWorld(rs.getString("name")).addPermission(rs.getString("permission_node"));
+                }
+            }
+            pst.close();
+            startTime = recordPhase(data, "permissions", startTime);
+
+            pst = con.prepareStatement(""
+                    + "SELECT group_uid, permission_node, timeout "
+                    + "FROM Group_Global_Temporary_Permissions "
+                    + "INNER JOIN Permissions ON Group_Global_Temporary_Permissions.permission_uid=Permissions.uid "
+                    + "WHERE timeout >= ?");
+            pst.setLong(1, System.currentTimeMillis());
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.addTempPermission(new TemporaryPermissionEntry(rs.getString("permission_node"), rs.getLong("timeout")));
+                }
+            }
+            pst.close();
+            pst = con.prepareStatement(""
+                    + "SELECT group_uid, name, permission_node, timeout "
+                    + "FROM Group_World_Temporary_Permissions "
+                    + "INNER JOIN Permissions ON Group_World_Temporary_Permissions.permission_uid=Permissions.uid "
+                    + "INNER JOIN Worlds ON Group_World_Temporary_Permissions.world_uid=Worlds.uid "
+                    + "WHERE timeout >= ?");
+            pst.setLong(1, System.currentTimeMillis());
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.getOrCreateWorld(rs.getString("name")).addTempPermission(new TemporaryPermissionEntry(rs.getString("permission_node"), rs.getLong("timeout")));
+                }
+            }
+            pst.close();
+            startTime = recordPhase(data, "temporary permissions", startTime);
+
+            pst = con.prepareStatement("SELECT group_uid, meta_key, meta_value FROM Group_Global_Meta");
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.setMeta(rs.getString("meta_key"), rs.getString("meta_value"));
+                }
+            }
+            pst.close();
+            pst = con.prepareStatement(""
+                    + "SELECT group_uid, name, meta_key, meta_value "
+                    + "FROM Group_World_Meta "
+                    + "INNER JOIN Worlds ON Group_World_Meta.world_uid=Worlds.uid");
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                GroupData group = groupsByUid.get(rs.getInt("group_uid"));
+                if (group != null) {
+                    group.getOrCreateWorld(rs.getString("name")).setMeta(rs.getString("meta_key"), rs.getString("meta_value"));
+                }
+            }
+            pst.close();
+            recordPhase(data, "metadata", startTime);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            attemptClose(pst);
+        }
+        return data;
+    }
+
+    private static long recordPhase(BulkGroupData data, String phase, long startTime) {
+        long endTime = System.currentTimeMillis();
+        data.recordPhase(phase, endTime - startTime);
+        return endTime;
+    }
+
     @Override
     public void createGroup(String name, int priority) {
         PreparedStatement pst = null;
@@ -64,9 +194,11 @@ public class MySQLGroupManagerDataSource implements GroupManagerDataSource {
             pst.setString(1, defaultGroup);
             pst.setString(2, name);
             pst.executeUpdate();
+            pst.close();
             pst = con.prepareStatement("DELETE FROM Permission_Groups WHERE name = ?");
             pst.setString(1, name);
             pst.executeUpdate();
+            sqlManager.uncacheGroupUid(name);
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -20,20 +20,41 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     private final MySQLGroupDataSource groupSource;
 
     private final String worldName;
+    private volatile int worldUid; // Resolved once, a world's uid never changes.
 
     public MySQLGroupWorldDataSource(MySQLManager sqlManager, MySQLGroupDataSource groupSource, String worldName) {
         this.sqlManager = sqlManager;
         this.groupSource = groupSource;
         this.worldName = worldName;
+        this.worldUid = sqlManager.getCachedWorldUid(worldName);
+    }
+
+    private int getWorldUid(Connection con) throws SQLException {
+        int uid = worldUid;
+        if (uid == -1) {
+            uid = sqlManager.getWorldUid(con, worldName);
+            worldUid = uid; // Still -1 if it isn't stored yet, so it's checked again next time.
+        }
+        return uid;
+    }
+
+    private int getOrCreateWorldUid(Connection con) throws SQLException {
+        int uid = worldUid;
+        if (uid == -1) {
+            uid = sqlManager.getOrCreateWorldUid(con, worldName);
+            worldUid = uid;
+        }
+        return uid;
     }
 
     @Override
     public void addPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_World_Permissions(permission_uid, world_uid, group_uid) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?)");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+            int worldUid = getOrCreateWorldUid(con);
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_World_Permissions(permission_uid, world_uid, group_uid) VALUES (?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -47,14 +68,19 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void addPermissions(Iterable<String> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Group_World_Permissions(permission_uid, world_uid, group_uid) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?)");
-            pst.setString(2, worldName);
+            int worldUid = getOrCreateWorldUid(con);
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("INSERT IGNORE INTO Group_World_Permissions(permission_uid, world_uid, group_uid) VALUES (?, ?, ?)");
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
+                pst.setInt(1, permissionUids.get(node));
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -66,10 +92,18 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void removePermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
             pst = con
-                    .prepareStatement("DELETE FROM Group_World_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("DELETE FROM Group_World_Permissions WHERE permission_uid=? AND world_uid=? AND group_uid=?");
+            pst.setInt(1, permissionUid);
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -81,21 +115,19 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
 
     @Override
     public void removePermissions(Iterable<String> permissionNodes) {
-        PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con
-                    .prepareStatement("DELETE FROM Group_World_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(2, worldName);
-            pst.setInt(3, groupSource.getUid());
-            for (String node : permissionNodes) {
-                pst.setString(1, node);
-                pst.addBatch();
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, permissionNodes);
+            int groupUid = groupSource.getUid();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                MySQLManager.deleteByPermissionUids(con, "DELETE FROM Group_World_Permissions WHERE world_uid=? AND group_uid=? AND permission_uid IN", permissionUids.values(), worldUid, groupUid);
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
     }
 
@@ -103,10 +135,11 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void addTempPermission(String permissionNode, long timeInMillis) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             pst = con
-                    .prepareStatement("INSERT IGNORE INTO Group_World_Temporary_Permissions(permission_uid, world_uid, group_uid, timeout) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?, ?)");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("INSERT IGNORE INTO Group_World_Temporary_Permissions(permission_uid, world_uid, group_uid, timeout) VALUES (?, ?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             pst.setLong(4, timeInMillis);
             pst.executeUpdate();
@@ -121,16 +154,21 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void addTempPermissions(Iterable<TemporaryPermissionEntry> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, MySQLManager.getNodes(permissionNodes));
             pst = con
-                    .prepareStatement("INSERT IGNORE INTO Group_World_Temporary_Permissions(permission_uid, world_uid, group_uid, timeout) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?, ?)");
-            pst.setString(2, worldName);
+                    .prepareStatement("INSERT IGNORE INTO Group_World_Temporary_Permissions(permission_uid, world_uid, group_uid, timeout) VALUES (?, ?, ?, ?)");
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             for (TemporaryPermissionEntry e : permissionNodes) {
-                pst.setString(1, e.getNode());
+                pst.setInt(1, permissionUids.get(e.getNode()));
                 pst.setLong(4, e.getExpirationTime());
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -142,10 +180,18 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void removeTempPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
             pst = con
-                    .prepareStatement("DELETE FROM Group_World_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("DELETE FROM Group_World_Temporary_Permissions WHERE permission_uid=? AND world_uid=? AND group_uid=?");
+            pst.setInt(1, permissionUid);
+            pst.setInt(2, worldUid);
             pst.setInt(3, groupSource.getUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -157,21 +203,19 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
 
     @Override
     public void removeTempPermissions(Iterable<TemporaryPermissionEntry> permissionNodes) {
-        PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con
-                    .prepareStatement("DELETE FROM Group_World_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(2, worldName);
-            pst.setInt(3, groupSource.getUid());
-            for (TemporaryPermissionEntry e : permissionNodes) {
-                pst.setString(1, e.getNode());
-                pst.addBatch();
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, MySQLManager.getNodes(permissionNodes));
+            int groupUid = groupSource.getUid();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                MySQLManager.deleteByPermissionUids(con, "DELETE FROM Group_World_Temporary_Permissions WHERE world_uid=? AND group_uid=? AND permission_uid IN", permissionUids.values(), worldUid, groupUid);
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
     }
 
@@ -179,10 +223,11 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void setMeta(String key, String value) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             pst = con
-                    .prepareStatement("INSERT INTO Group_World_Meta(group_uid, world_uid, meta_key, meta_value) VALUES (?, (SELECT uid FROM Worlds WHERE name=?), ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
+                    .prepareStatement("INSERT INTO Group_World_Meta(group_uid, world_uid, meta_key, meta_value) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
             pst.setInt(1, groupSource.getUid());
-            pst.setString(2, worldName);
+            pst.setInt(2, worldUid);
             pst.setString(3, key);
             pst.setString(4, value);
             pst.setString(5, value);
@@ -198,9 +243,13 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
     public void removeMeta(String key) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_World_Meta WHERE group_uid=? AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND meta_key=?");
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            pst = con.prepareStatement("DELETE FROM Group_World_Meta WHERE group_uid=? AND world_uid=? AND meta_key=?");
             pst.setInt(1, groupSource.getUid());
-            pst.setString(2, worldName);
+            pst.setInt(2, worldUid);
             pst.setString(3, key);
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -215,13 +264,14 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
         PreparedStatement insertStatement = null;
         PreparedStatement deleteStatement = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             insertStatement = con
-                    .prepareStatement("INSERT INTO Group_World_Meta(group_uid, world_uid, meta_key, meta_value) VALUES (?, (SELECT uid FROM Worlds WHERE name=?), ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
-            deleteStatement = con.prepareStatement("DELETE FROM Group_World_Meta WHERE group_uid=? AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND meta_key=?");
+                    .prepareStatement("INSERT INTO Group_World_Meta(group_uid, world_uid, meta_key, meta_value) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
+            deleteStatement = con.prepareStatement("DELETE FROM Group_World_Meta WHERE group_uid=? AND world_uid=? AND meta_key=?");
             insertStatement.setInt(1, groupSource.getUid());
             deleteStatement.setInt(1, groupSource.getUid());
-            insertStatement.setString(2, worldName);
-            deleteStatement.setString(2, worldName);
+            insertStatement.setInt(2, worldUid);
+            deleteStatement.setInt(2, worldUid);
             for (MetadataEntry e : entries) {
                 if (e.getValue() == null) {
                     deleteStatement.setString(3, e.getKey());
@@ -233,8 +283,11 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
                     insertStatement.addBatch();
                 }
             }
-            insertStatement.executeBatch();
-            deleteStatement.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                insertStatement.executeBatch();
+                deleteStatement.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -248,9 +301,13 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
         ArrayList<String> ret = new ArrayList<>();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
             pst = con
-                    .prepareStatement("SELECT permission_node FROM Group_World_Permissions INNER JOIN Permissions ON Group_World_Permissions.permission_uid = Permissions.uid WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(1, worldName);
+                    .prepareStatement("SELECT permission_node FROM Group_World_Permissions INNER JOIN Permissions ON Group_World_Permissions.permission_uid = Permissions.uid WHERE world_uid=? AND group_uid=?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, groupSource.getUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -269,9 +326,13 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
         ArrayList<TemporaryPermissionEntry> ret = new ArrayList<>();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
             pst = con
-                    .prepareStatement("SELECT permission_node, timeout FROM Group_World_Temporary_Permissions INNER JOIN Permissions ON Group_World_Temporary_Permissions.permission_uid = Permissions.uid WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid=?");
-            pst.setString(1, worldName);
+                    .prepareStatement("SELECT permission_node, timeout FROM Group_World_Temporary_Permissions INNER JOIN Permissions ON Group_World_Temporary_Permissions.permission_uid = Permissions.uid WHERE world_uid=? AND group_uid=?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, groupSource.getUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -290,8 +351,12 @@ public class MySQLGroupWorldDataSource implements PermissionEntityDataSource {
         HashMap<String, String> ret = new HashMap<String, String>(64);
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("SELECT meta_key, meta_value FROM Group_World_Meta WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND group_uid = ?");
-            pst.setString(1, worldName);
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
+            pst = con.prepareStatement("SELECT meta_key, meta_value FROM Group_World_Meta WHERE world_uid=? AND group_uid = ?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, groupSource.getUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -1,18 +1,27 @@
 package com.overmc.overpermissions.internal.databases.mysql;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import com.google.common.base.Preconditions;
 import com.overmc.overpermissions.exceptions.DatabaseConnectionException;
+import com.overmc.overpermissions.internal.databases.ConnectionPoolStats;
 import com.overmc.overpermissions.internal.databases.SingleConnectionPool;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPoolMBean;
 
 public class MySQLHikariConnectionPool extends SingleConnectionPool {
     private final HikariDataSource connectionPool;
+    private final HikariPoolMBean poolBean; // Hikari only exposes its pool's state through JMX.
 
-    private MySQLHikariConnectionPool(String serverName, String serverPort, String dbName, String dbUsername, String dbPassword, String pluginName) throws SQLException {
+    private MySQLHikariConnectionPool(String serverName, String serverPort, String dbName, String dbUsername, String dbPassword, String pluginName, MySQLDriverSettings driverSettings, MySQLPoolSettings poolSettings) throws SQLException {
         super(dbUsername, dbPassword, "jdbc:mysql://" + serverName + ":" + serverPort + "/", dbName);
         HikariConfig config = new HikariConfig();
         config.setDataSourceClassName("com.mysql.jdbc.jdbc2.optional.MysqlDataSource");
@@ -21,17 +30,25 @@ public class MySQLHikariConnectionPool extends SingleConnectionPool {
         config.addDataSourceProperty("databaseName", dbName);
         config.addDataSourceProperty("user", dbUsername);
         config.addDataSourceProperty("password", dbPassword);
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "1024");
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("useServerPrepStmts", "true");
-        config.addDataSourceProperty("cacheServerConfiguration", "true");
-        config.addDataSourceProperty("rewriteBatchedStatements", "true"); // We don't have that many big batches.
+        for (Map.Entry<String, String> property : driverSettings.getProperties().entrySet()) {
+            config.addDataSourceProperty(property.getKey(), property.getValue());
+        }
         if(pluginName != null) {
             config.setPoolName("for " + pluginName); //Code from hikari: LOGGER.info("HikariCP pool {} is shutting down.", configuration.getPoolName());
         }
-        config.setConnectionTimeout(1000L); //Timeout after one second instead of the 30 default.
+        config.setMaximumPoolSize(poolSettings.getMaximumPoolSize());
+        config.setMinimumIdle(poolSettings.getMinimumIdle());
+        config.setConnectionTimeout(poolSettings.getConnectionTimeout());
+        config.setIdleTimeout(poolSettings.getIdleTimeout());
+        config.setMaxLifetime(poolSettings.getMaxLifetime());
+        config.setLeakDetectionThreshold(poolSettings.getLeakDetectionThreshold());
+        config.setRegisterMbeans(true);
         connectionPool = new HikariDataSource(config);
+        try {
+            poolBean = JMX.newMBeanProxy(ManagementFactory.getPlatformMBeanServer(), new ObjectName("com.zaxxer.hikari:type=Pool (" + connectionPool.getPoolName() + ")"), HikariPoolMBean.class);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
     }
     
     public static class Builder {
@@ -44,6 +61,8 @@ public class MySQLHikariConnectionPool extends SingleConnectionPool {
         private String serverPort = "3306";
         private String dbPassword = "";
         private String pluginName = null;
+        private MySQLDriverSettings driverSettings = MySQLDriverSettings.defaults();
+        private MySQLPoolSettings poolSettings = MySQLPoolSettings.defaults();
         
         public Builder(String dbName) {
             Preconditions.checkNotNull(dbName, "database name");
@@ -80,20 +99,44 @@ public class MySQLHikariConnectionPool extends SingleConnectionPool {
             return this;
         }
         
+        public Builder setDriverSettings(MySQLDriverSettings driverSettings) {
+            Preconditions.checkNotNull(driverSettings, "driver settings");
+            this.driverSettings = driverSettings;
+            return this;
+        }
+        
+        public Builder setPoolSettings(MySQLPoolSettings poolSettings) {
+            Preconditions.checkNotNull(poolSettings, "pool settings");
+            this.poolSettings = poolSettings;
+            return this;
+        }
+        
         public MySQLHikariConnectionPool build( ) throws SQLException {
-            return new MySQLHikariConnectionPool(serverName, serverPort, dbName, dbUsername, dbPassword, pluginName);
+            return new MySQLHikariConnectionPool(serverName, serverPort, dbName, dbUsername, dbPassword, pluginName, driverSettings, poolSettings);
         }
     }
     
     @Override
     public Connection getConnection( ) throws DatabaseConnectionException {
+        long startNanos = System.nanoTime();
         try {
-            return connectionPool.getConnection();
+            Connection con = connectionPool.getConnection();
+            recordBorrow(startNanos);
+            return con;
         } catch (SQLException ex) {
             throw MySQLManager.handleSqlException(ex);
         }
     }
 
+    @Override
+    public ConnectionPoolStats getStats( ) {
+        try {
+            return createStats(poolBean.getActiveConnections(), poolBean.getIdleConnections(), poolBean.getTotalConnections(), poolBean.getThreadsAwaitingConnection());
+        } catch (RuntimeException e) { // The bean is gone once the pool shuts down.
+            return createStats(-1, -1, -1, -1);
+        }
+    }
+
     @Override
     public void shutdown( ) {
         connectionPool.shutdown();
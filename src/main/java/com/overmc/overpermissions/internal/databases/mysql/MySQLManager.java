@@ -1,6 +1,10 @@
 package com.overmc.overpermissions.internal.databases.mysql;
 
 import com.mysql.jdbc.exceptions.jdbc4.CommunicationsException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
 import com.overmc.overpermissions.exceptions.DatabaseConnectionException;
 import com.overmc.overpermissions.exceptions.StartException;
 import com.overmc.overpermissions.internal.databases.ConnectionPool;
@@ -9,28 +13,41 @@ import com.overmc.overpermissions.internal.databases.SingleConnectionPool;
 import com.overmc.overpermissions.internal.datasources.*;
 
 import java.sql.*;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 public final class MySQLManager implements Database {
     public static final int GLOBAL_WORLD_UID = 1;
     public static final int GLOBAL_SERVER_UID = 1;
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    private static final int PLAYER_UID_CACHE_SIZE = 4096;
+    private static final int PURGE_CHUNK_SIZE = 1000;
 
     private volatile boolean databaseInitialized;
 
     private final Logger logger;
     private final ExecutorService executor;
     private final ConnectionPool connectionPool;
+    private final MySQLTempPermissionSweeper tempPermissionSweeper;
 
     private final UUIDHandler uuidHandler;
     private final String defaultGroup;
 
+    private final ConcurrentMap<String, Integer> groupUids = new ConcurrentHashMap<>(); // Primed by bulk group loads, so group sources don't have to look their uid up.
+    private final ConcurrentMap<String, Integer> permissionUids = new ConcurrentHashMap<>(); // Keyed by lower case node, every node that has been stored is in here.
+    private final ConcurrentMap<Integer, String> permissionNodes = new ConcurrentHashMap<>();
+    private final Cache<UUID, Integer> playerUids = CacheBuilder.newBuilder().maximumSize(PLAYER_UID_CACHE_SIZE).build(); // Only players that have been stored, filled as they log in.
+    private final ConcurrentMap<String, Integer> worldUids = new ConcurrentHashMap<>(); // Keyed by lower case name, every world that has been stored is in here.
+    private final ConcurrentMap<Integer, String> worldNames = new ConcurrentHashMap<>();
+
     public Connection getConnection( ) throws SQLException, DatabaseConnectionException {
         return connectionPool.getConnection();
     }
 
-    public MySQLManager(Logger logger, ExecutorService executor, String defaultGroup, String serverName, String serverPort, String dbName, String dbUsername, String dbPassword, boolean usePool, boolean forceOnlineMode) throws Exception {
+    public MySQLManager(Logger logger, ExecutorService executor, String defaultGroup, String serverName, String serverPort, String dbName, String dbUsername, String dbPassword, boolean usePool, MySQLPoolSettings poolSettings, MySQLDriverSettings driverSettings, boolean forceOnlineMode, long purgeIntervalMillis) throws Exception {
         this.executor = executor;
         this.logger = logger;
         this.defaultGroup = defaultGroup;
@@ -41,11 +58,15 @@ public final class MySQLManager implements Database {
         initDatabase(url, dbName, dbUsername, dbPassword); // The database needs to be created so that the connection pool doesn't throw an exception, thus this constructor overhead is necessary.
         if (usePool) {
             connectionPool = new MySQLHikariConnectionPool.Builder(dbName).setServerPort(serverPort).setDatabaseUsername(dbUsername).setDatabasePassword(dbPassword).setPluginName("OverPermissions")
-                    .build();
+                    .setPoolSettings(poolSettings).setDriverSettings(driverSettings).build();
         } else {
-            connectionPool = new SingleConnectionPool(dbUsername, dbPassword, url, dbName);
+            connectionPool = new SingleConnectionPool(dbUsername, dbPassword, url, dbName, driverSettings.getProperties(), driverSettings.getStatementCacheSize());
         }
         initDefaultGroup();
+        loadPermissionUids();
+        loadWorldUids();
+        tempPermissionSweeper = new MySQLTempPermissionSweeper(logger, this, PURGE_CHUNK_SIZE, purgeIntervalMillis);
+        tempPermissionSweeper.start();
         uuidHandler = new MySQLUUIDHandler(this, forceOnlineMode);
     }
 
@@ -91,7 +112,7 @@ public final class MySQLManager implements Database {
                     + "INDEX username (username ASC),"
                     + "FOREIGN KEY(player_uid) REFERENCES Players(uid)"
                     + ")");
-            st.executeUpdate("CREATE TABLE IF NOT EXISTS Player_Permissions"
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS Player_World_Permissions"
                     + "("
                     + "world_uid int UNSIGNED NOT NULL,"
                     + "permission_uid int UNSIGNED NOT NULL,"
@@ -238,78 +259,6 @@ public final class MySQLManager implements Database {
                     + "FOREIGN KEY(group_uid) REFERENCES Permission_Groups(uid),"
                     + "PRIMARY KEY(group_uid, player_uid)"
                     + ")");
-
-            // Utility procedures and functions
-            try {
-                st.executeUpdate("DROP FUNCTION IF EXISTS select_or_insert_world");
-                st.executeUpdate("CREATE FUNCTION select_or_insert_world (n VARCHAR(64))" +
-                        "RETURNS INT UNSIGNED " +
-                        "DETERMINISTIC " +
-                        "MODIFIES SQL DATA " +
-                        "BEGIN " +
-                        "DECLARE return_value INT UNSIGNED;" +
-                        "IF EXISTS (SELECT * FROM Worlds where name = n) THEN " +
-                        "    SELECT uid INTO return_value FROM Worlds WHERE name = n;" +
-                        "ELSE " +
-                        "    INSERT INTO Worlds (name) VALUES (n);" +
-                        "    SELECT LAST_INSERT_ID() INTO return_value;" +
-                        "END IF;" +
-                        "RETURN return_value;" +
-                        "END ");
-            } catch (SQLException e) {
-                if(e.getErrorCode() == 1304) { //A race condition could make the CREATE FUNCTION statement occur when there is already a function defined.
-                    //This should only happen if you start two servers accessing the same mysql database at once, and it means that one will create it anyways.
-                    logger.fine("A race condition stopped this instance of OverPermissions from creating the function 'select_or_insert_world.'");
-                } else {
-                    throw e; //Propagate.
-                }
-            }
-            try {
-                st.executeUpdate("DROP FUNCTION IF EXISTS select_or_insert_permission");
-                st.executeUpdate("CREATE FUNCTION select_or_insert_permission (p_permission_node VARCHAR(256))" +
-                        "RETURNS INT UNSIGNED " +
-                        "DETERMINISTIC " +
-                        "MODIFIES SQL DATA " +
-                        "BEGIN " +
-                        "DECLARE return_value INT UNSIGNED;" +
-                        "IF EXISTS (SELECT * FROM Permissions WHERE permission_node = p_permission_node) THEN " +
-                        "    SELECT uid INTO return_value FROM Permissions WHERE permission_node = p_permission_node;" +
-                        "ELSE " +
-                        "    INSERT INTO Permissions (permission_node) VALUES (p_permission_node);" +
-                        "    SELECT LAST_INSERT_ID() INTO return_value;" +
-                        "END IF;" +
-                        "RETURN return_value;" +
-                        "END ");
-            } catch (SQLException e) {
-                if(e.getErrorCode() == 1304) { //See above
-                    logger.fine("A race condition stopped this instance of OverPermissions from creating the function 'select_or_insert_permission.'");
-                } else {
-                    throw e; //Propagate.
-                }
-            }
-            try {
-                st.executeUpdate("DROP FUNCTION IF EXISTS select_or_insert_player");
-                st.executeUpdate("CREATE FUNCTION select_or_insert_player (p_lower_uid bigint, p_upper_uid bigint)" +
-                        "RETURNS INT UNSIGNED " +
-                        "DETERMINISTIC " +
-                        "MODIFIES SQL DATA " +
-                        "BEGIN " +
-                        "DECLARE return_value INT UNSIGNED;" +
-                        "IF EXISTS (SELECT * FROM Players WHERE lower_uid = p_lower_uid AND upper_uid = p_upper_uid) THEN " +
-                        "    SELECT uid INTO return_value FROM Players WHERE lower_uid = p_lower_uid AND upper_uid = p_upper_uid;" +
-                        "ELSE " +
-                        "    INSERT INTO Players (lower_uid, upper_uid) VALUES (p_lower_uid, p_upper_uid);" +
-                        "    SELECT LAST_INSERT_ID() INTO return_value;" +
-                        "END IF;" +
-                        "RETURN return_value;" +
-                        "END ");
-            } catch (SQLException e) {
-                if(e.getErrorCode() == 1304) { //See above
-                    logger.fine("A race condition stopped this instance of OverPermissions from creating the function 'select_or_insert_player.'");
-                } else {
-                    throw e; //Propagate.
-                }
-            }
         } catch (SQLException e) {
             throw handleSqlException(e);
         } finally {
@@ -329,6 +278,115 @@ public final class MySQLManager implements Database {
         }
     }
 
+    private void loadPermissionUids( ) throws SQLException {
+        try (Connection con = getConnection(); Statement st = con.createStatement()) {
+            ResultSet rs = st.executeQuery("SELECT uid, permission_node FROM Permissions ORDER BY uid");
+            while (rs.next()) {
+                cachePermissionUid(rs.getString(2), rs.getInt(1));
+            }
+        }
+    }
+
+    private void cachePermissionUid(String permissionNode, int uid) {
+        // Two servers racing to store the same node can leave duplicates, the oldest one always wins.
+        if (permissionUids.putIfAbsent(permissionNode.toLowerCase(), uid) == null) {
+            permissionNodes.put(uid, permissionNode);
+        }
+    }
+
+    /**
+     * @return the uid of the given permission node, or -1 if it has never been stored.
+     */
+    int getPermissionUid(Connection con, String permissionNode) throws SQLException {
+        Integer uid = getPermissionUids(con, Collections.singleton(permissionNode)).get(permissionNode);
+        return (uid == null) ? -1 : uid;
+    }
+
+    /**
+     * @return the uid of the given permission node, storing the node if it hasn't been stored yet.
+     * @throws SQLException if the node couldn't be stored or read back.
+     */
+    int getOrCreatePermissionUid(Connection con, String permissionNode) throws SQLException {
+        return getOrCreatePermissionUids(con, Collections.singleton(permissionNode)).get(permissionNode);
+    }
+
+    /**
+     * @return the uids of the given permission nodes, keyed by the nodes as they were given. Nodes that have never been stored are left out.
+     */
+    Map<String, Integer> getPermissionUids(Connection con, Iterable<String> permissionNodes) throws SQLException {
+        return lookupPermissionUids(con, permissionNodes, false);
+    }
+
+    /**
+     * @return the uids of the given permission nodes, keyed by the nodes as they were given. Nodes that haven't been stored yet are stored in one batch.
+     * @throws SQLException if any node couldn't be stored or read back, so every given node is always in the returned map.
+     */
+    Map<String, Integer> getOrCreatePermissionUids(Connection con, Iterable<String> permissionNodes) throws SQLException {
+        return lookupPermissionUids(con, permissionNodes, true);
+    }
+
+    /**
+     * @return the node with the given uid, or null if it hasn't been loaded.
+     */
+    String getPermissionNode(int uid) {
+        return permissionNodes.get(uid);
+    }
+
+    private Map<String, Integer> lookupPermissionUids(Connection con, Iterable<String> nodes, boolean create) throws SQLException {
+        Map<String, Integer> ret = new HashMap<>();
+        Set<String> missingNodes = new LinkedHashSet<>();
+        for (String node : nodes) {
+            Integer uid = permissionUids.get(node.toLowerCase());
+            if (uid == null) {
+                missingNodes.add(node);
+            } else {
+                ret.put(node, uid);
+            }
+        }
+        if (missingNodes.isEmpty()) {
+            return ret;
+        }
+        // Another server may have stored these since this one started, so they're read back either way.
+        if (create) {
+            try (PreparedStatement pst = con.prepareStatement("INSERT INTO Permissions(permission_node) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM Permissions WHERE permission_node=?)")) {
+                for (String node : missingNodes) {
+                    pst.setString(1, node);
+                    pst.setString(2, node);
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+        }
+        for (List<String> chunk : Iterables.partition(missingNodes, LOOKUP_CHUNK_SIZE)) {
+            try (PreparedStatement pst = con.prepareStatement("SELECT uid, permission_node FROM Permissions WHERE permission_node IN (" + createParameterList(chunk.size(), "?") + ") ORDER BY uid")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pst.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pst.executeQuery();
+                while (rs.next()) {
+                    cachePermissionUid(rs.getString(2), rs.getInt(1));
+                }
+            }
+        }
+        for (String node : missingNodes) {
+            Integer uid = permissionUids.get(node.toLowerCase());
+            if (uid != null) {
+                ret.put(node, uid);
+            } else if (create) {
+                throw new SQLException("Permission node \"" + node + "\" couldn't be stored.");
+            }
+        }
+        return ret;
+    }
+
+    static List<String> getNodes(Iterable<TemporaryPermissionEntry> entries) {
+        List<String> ret = new ArrayList<>();
+        for (TemporaryPermissionEntry e : entries) {
+            ret.add(e.getNode());
+        }
+        return ret;
+    }
+
     @Override
     public GroupDataSource createGroupDataSource(String groupName) {
         return new MySQLGroupDataSource(executor, this, groupName);
@@ -344,48 +402,65 @@ public final class MySQLManager implements Database {
         return new MySQLUserDataSource(this, uuid);
     }
 
+    void cacheGroupUid(String groupName, int uid) {
+        groupUids.put(groupName.toLowerCase(), uid);
+    }
+
+    void uncacheGroupUid(String groupName) {
+        groupUids.remove(groupName.toLowerCase());
+    }
+
+    /**
+     * @return the uid of the given group if it has been cached, or -1 otherwise.
+     */
+    int getCachedGroupUid(String groupName) {
+        Integer uid = groupUids.get(groupName.toLowerCase());
+        return (uid == null) ? -1 : uid;
+    }
+
     public int getWorldUid(String worldName) throws DatabaseConnectionException {
-        PreparedStatement pst = null;
+        Integer uid = worldUids.get(worldName.toLowerCase());
+        if (uid != null) {
+            return uid;
+        }
         try (Connection con = getConnection()) {
-            pst = con.prepareStatement("SELECT uid FROM Worlds WHERE name = ?");
-            pst.setString(1, worldName);
-            ResultSet rs = pst.executeQuery();
-            if (rs.first() && rs.isLast()) {
-                return rs.getInt("uid");
-            }
+            return getWorldUid(con, worldName);
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
         return -1;
     }
 
     public int getOrCreateWorldUid(String worldName) throws DatabaseConnectionException {
-        PreparedStatement pst = null;
+        Integer uid = worldUids.get(worldName.toLowerCase());
+        if (uid != null) {
+            return uid;
+        }
         try (Connection con = getConnection()) {
-            pst = con.prepareStatement("SELECT select_or_insert_world(?)");
-            pst.setString(1, worldName);
-            ResultSet rs = pst.executeQuery();
-            if (rs.first() && rs.isLast()) {
-                return rs.getInt(1);
-            }
+            return getOrCreateWorldUid(con, worldName);
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
         return -1;
     }
 
+    /**
+     * @return the name of the world with the given uid, or null if there isn't one.
+     */
     public String getWorldName(int worldUid) throws DatabaseConnectionException {
+        String name = worldNames.get(worldUid);
+        if (name != null) {
+            return name;
+        }
         PreparedStatement pst = null;
         try (Connection con = getConnection()) {
             pst = con.prepareStatement("SELECT name FROM Worlds WHERE uid = ?");
             pst.setInt(1, worldUid);
             ResultSet rs = pst.executeQuery();
             if (rs.first() && rs.isLast()) {
-                return rs.getString("name");
+                name = rs.getString("name");
+                cacheWorldUid(name, worldUid);
+                return name;
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -395,42 +470,205 @@ public final class MySQLManager implements Database {
         return null;
     }
 
+    /**
+     * @return the uid of the given world if it has been cached, or -1 otherwise.
+     */
+    int getCachedWorldUid(String worldName) {
+        Integer uid = worldUids.get(worldName.toLowerCase());
+        return (uid == null) ? -1 : uid;
+    }
+
+    /**
+     * @return the uid of the given world, or -1 if it has never been stored.
+     */
+    int getWorldUid(Connection con, String worldName) throws SQLException {
+        Integer uid = lookupWorldUids(con, Collections.singleton(worldName), false).get(worldName);
+        return (uid == null) ? -1 : uid;
+    }
+
+    /**
+     * @return the uid of the given world, storing the world if it hasn't been stored yet.
+     * @throws SQLException if the world couldn't be stored or read back.
+     */
+    int getOrCreateWorldUid(Connection con, String worldName) throws SQLException {
+        return lookupWorldUids(con, Collections.singleton(worldName), true).get(worldName);
+    }
+
+    private void loadWorldUids( ) throws SQLException {
+        try (Connection con = getConnection(); Statement st = con.createStatement()) {
+            ResultSet rs = st.executeQuery("SELECT uid, name FROM Worlds");
+            while (rs.next()) {
+                cacheWorldUid(rs.getString(2), rs.getInt(1));
+            }
+        }
+    }
+
+    private void cacheWorldUid(String worldName, int uid) {
+        worldUids.put(worldName.toLowerCase(), uid);
+        worldNames.put(uid, worldName);
+    }
+
+    private Map<String, Integer> lookupWorldUids(Connection con, Collection<String> names, boolean create) throws SQLException {
+        Map<String, Integer> ret = new HashMap<>();
+        Set<String> missingNames = new LinkedHashSet<>();
+        for (String name : names) {
+            Integer uid = worldUids.get(name.toLowerCase());
+            if (uid == null) {
+                missingNames.add(name);
+            } else {
+                ret.put(name, uid);
+            }
+        }
+        if (missingNames.isEmpty()) {
+            return ret;
+        }
+        for (List<String> chunk : Iterables.partition(missingNames, LOOKUP_CHUNK_SIZE)) {
+            if (create) { // World names are unique, so worlds that another server has stored are ignored.
+                try (PreparedStatement pst = con.prepareStatement("INSERT IGNORE INTO Worlds(name) VALUES " + createParameterList(chunk.size(), "(?)"))) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pst.setString(i + 1, chunk.get(i));
+                    }
+                    pst.executeUpdate();
+                }
+            }
+            try (PreparedStatement pst = con.prepareStatement("SELECT uid, name FROM Worlds WHERE name IN (" + createParameterList(chunk.size(), "?") + ")")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pst.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pst.executeQuery();
+                while (rs.next()) {
+                    cacheWorldUid(rs.getString(2), rs.getInt(1));
+                }
+            }
+        }
+        for (String name : missingNames) {
+            Integer uid = worldUids.get(name.toLowerCase());
+            if (uid != null) {
+                ret.put(name, uid);
+            } else if (create) {
+                throw new SQLException("World \"" + name + "\" couldn't be stored.");
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Delete the rows of every given permission uid with a single statement per chunk of uids, instead of a statement per row.
+     *
+     * @param query a delete ending in "permission_uid IN", the uid list is appended to it.
+     * @param parameters the parameters to bind before the uids, in order.
+     */
+    static void deleteByPermissionUids(Connection con, String query, Collection<Integer> permissionUids, int... parameters) throws SQLException {
+        for (List<Integer> chunk : Iterables.partition(permissionUids, LOOKUP_CHUNK_SIZE)) {
+            try (PreparedStatement pst = con.prepareStatement(query + " (" + createParameterList(chunk.size(), "?") + ")")) {
+                int index = 1;
+                for (int parameter : parameters) {
+                    pst.setInt(index++, parameter);
+                }
+                for (int permissionUid : chunk) {
+                    pst.setInt(index++, permissionUid);
+                }
+                pst.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @return the given parameter repeated the given number of times, separated by commas.
+     */
+    static String createParameterList(int count, String parameter) {
+        StringBuilder ret = new StringBuilder(count * (parameter.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i != 0) {
+                ret.append(", ");
+            }
+            ret.append(parameter);
+        }
+        return ret.toString();
+    }
+
     public int getPlayerUid(UUID uuid) throws DatabaseConnectionException {
-        PreparedStatement pst = null;
+        Integer uid = playerUids.getIfPresent(uuid);
+        if (uid != null) {
+            return uid;
+        }
         try (Connection con = getConnection()) {
-            pst = con.prepareStatement("SELECT uid FROM Players WHERE lower_uid = ? AND upper_uid = ?");
+            return getPlayerUid(con, uuid);
+        } catch (SQLException e) { // TODO properly handle sql exceptions
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the uid of the given player, or -1 if they have never been stored.
+     */
+    int getPlayerUid(Connection con, UUID uuid) throws SQLException {
+        Integer uid = playerUids.getIfPresent(uuid);
+        if (uid != null) {
+            return uid;
+        }
+        try (PreparedStatement pst = con.prepareStatement("SELECT uid FROM Players WHERE lower_uid = ? AND upper_uid = ?")) {
             pst.setLong(1, uuid.getLeastSignificantBits());
             pst.setLong(2, uuid.getMostSignificantBits());
             ResultSet rs = pst.executeQuery();
             if (rs.first() && rs.isLast()) {
-                return rs.getInt("uid");
+                uid = rs.getInt("uid");
+                playerUids.put(uuid, uid);
+                return uid;
             }
-        } catch (SQLException e) { // TODO properly handle sql exceptions
-            e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
         return -1;
     }
 
     public int getOrCreatePlayerUid(UUID uuid) throws DatabaseConnectionException {
-        PreparedStatement pst = null;
+        Integer uid = playerUids.getIfPresent(uuid);
+        if (uid != null) {
+            return uid;
+        }
         try (Connection con = getConnection()) {
-            pst = con.prepareStatement("SELECT select_or_insert_player(?, ?)");
+            return getOrCreatePlayerUid(con, uuid);
+        } catch (SQLException e) { // TODO properly handle sql exceptions
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the uid of the given player, storing the player if they haven't been stored yet.
+     */
+    int getOrCreatePlayerUid(Connection con, UUID uuid) throws SQLException {
+        Integer uid = playerUids.getIfPresent(uuid);
+        if (uid != null) {
+            return uid;
+        }
+        // Setting LAST_INSERT_ID on a duplicate makes the existing uid come back as the generated key, so this is one round trip either way.
+        try (PreparedStatement pst = con.prepareStatement("INSERT INTO Players(lower_uid, upper_uid) VALUES (?, ?) ON DUPLICATE KEY UPDATE uid=LAST_INSERT_ID(uid)", Statement.RETURN_GENERATED_KEYS)) {
             pst.setLong(1, uuid.getLeastSignificantBits());
             pst.setLong(2, uuid.getMostSignificantBits());
-            ResultSet rs = pst.executeQuery();
-            if (rs.first() && rs.isLast()) {
-                return rs.getInt(1);
+            pst.executeUpdate();
+            ResultSet rs = pst.getGeneratedKeys();
+            if (rs.next()) {
+                uid = rs.getInt(1);
+                playerUids.put(uuid, uid);
+                return uid;
             }
-        } catch (SQLException e) { // TODO properly handle sql exceptions
-            e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
         return -1;
     }
 
+    /**
+     * @return the uid of the given player if it has been cached, or -1 otherwise.
+     */
+    int getCachedPlayerUid(UUID uuid) {
+        Integer uid = playerUids.getIfPresent(uuid);
+        return (uid == null) ? -1 : uid;
+    }
+
+    void cachePlayerUid(UUID uuid, int uid) {
+        playerUids.put(uuid, uid);
+    }
+
     public UUID getPlayerUuid(int playerUid) throws DatabaseConnectionException {
         PreparedStatement pst = null;
         try (Connection con = getConnection()) {
@@ -469,6 +707,7 @@ public final class MySQLManager implements Database {
 
     @Override
     public void shutdown( ) {
+        tempPermissionSweeper.shutdown();
         connectionPool.shutdown();
     }
 
@@ -0,0 +1,66 @@
+package com.overmc.overpermissions.internal.databases.mysql;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How a {@link MySQLHikariConnectionPool} sizes and recycles its connections. Every duration is in milliseconds.
+ */
+public final class MySQLPoolSettings {
+    private static final MySQLPoolSettings DEFAULT_SETTINGS = new MySQLPoolSettings(10, 2, 1000L, 600000L, 1800000L, 0L);
+
+    private final int maximumPoolSize;
+    private final int minimumIdle;
+    private final long connectionTimeout;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final long leakDetectionThreshold;
+
+    /**
+     * @param maximumPoolSize the most connections the pool opens at once.
+     * @param minimumIdle how many idle connections the pool tries to keep open.
+     * @param connectionTimeout how long a thread waits for a connection before failing.
+     * @param idleTimeout how long a connection above the minimum can sit idle before it's closed, 0 never closes them.
+     * @param maxLifetime how long a connection is kept before it's replaced, 0 keeps them forever. This should be shorter than the server's wait_timeout.
+     * @param leakDetectionThreshold how long a connection can be held before a possible leak is logged, 0 disables leak detection.
+     */
+    public MySQLPoolSettings(int maximumPoolSize, int minimumIdle, long connectionTimeout, long idleTimeout, long maxLifetime, long leakDetectionThreshold) {
+        Preconditions.checkArgument(maximumPoolSize > 0, "maximum pool size must be greater than 0.");
+        Preconditions.checkArgument((minimumIdle >= 0) && (minimumIdle <= maximumPoolSize), "minimum idle must be between 0 and the maximum pool size.");
+        Preconditions.checkArgument(connectionTimeout > 0, "connection timeout must be greater than 0.");
+        Preconditions.checkArgument((idleTimeout >= 0) && (maxLifetime >= 0) && (leakDetectionThreshold >= 0), "durations can't be negative");
+        this.maximumPoolSize = maximumPoolSize;
+        this.minimumIdle = minimumIdle;
+        this.connectionTimeout = connectionTimeout;
+        this.idleTimeout = idleTimeout;
+        this.maxLifetime = maxLifetime;
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public static MySQLPoolSettings defaults( ) {
+        return DEFAULT_SETTINGS;
+    }
+
+    public int getMaximumPoolSize( ) {
+        return maximumPoolSize;
+    }
+
+    public int getMinimumIdle( ) {
+        return minimumIdle;
+    }
+
+    public long getConnectionTimeout( ) {
+        return connectionTimeout;
+    }
+
+    public long getIdleTimeout( ) {
+        return idleTimeout;
+    }
+
+    public long getMaxLifetime( ) {
+        return maxLifetime;
+    }
+
+    public long getLeakDetectionThreshold( ) {
+        return leakDetectionThreshold;
+    }
+}
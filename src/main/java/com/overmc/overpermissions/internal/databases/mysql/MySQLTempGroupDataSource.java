@@ -20,23 +20,17 @@ public class MySQLTempGroupDataSource implements TemporaryPermissionEntityDataSo
         TemporaryNodeBatch.Builder builder = TemporaryNodeBatch.builder();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Group_Global_Temporary_Permissions WHERE timeout < ?"); //Purge global tables of outdated temp permissions
-            pst.setLong(1, System.currentTimeMillis());
-            pst.executeUpdate();
-            pst.close();
-            pst = con.prepareStatement("DELETE FROM Group_World_Temporary_Permissions WHERE timeout < ?"); //Purge world tables of outdated temp permissions
-            pst.setLong(1, System.currentTimeMillis());
-            pst.executeUpdate();
-            pst.close();
+            long currentTime = System.currentTimeMillis(); // Expired rows are left for the purge sweeper to delete.
             pst = con.prepareStatement(""
                     + "SELECT permission_node, timeout "
                     + "FROM Group_Global_Temporary_Permissions "
                     + "INNER JOIN Permissions ON Group_Global_Temporary_Permissions.permission_uid=Permissions.uid "
-                    + "WHERE group_uid=(SELECT uid FROM Permission_Groups WHERE name=?)");
+                    + "WHERE group_uid=(SELECT uid FROM Permission_Groups WHERE name=?) AND timeout >= ?");
             pst.setString(1, groupName);
+            pst.setLong(2, currentTime);
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
-                builder.addGlobalNode(rs.getString("permission_node"), rs.getLong("timeout") - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                builder.addGlobalNode(rs.getString("permission_node"), rs.getLong("timeout") - currentTime, TimeUnit.MILLISECONDS);
             }
             pst.close();
             pst = con.prepareStatement(""
@@ -44,11 +38,12 @@ public class MySQLTempGroupDataSource implements TemporaryPermissionEntityDataSo
                     + "FROM Group_World_Temporary_Permissions "
                     + "INNER JOIN Permissions ON Group_World_Temporary_Permissions.permission_uid = Permissions.uid "
                     + "INNER JOIN Worlds ON Group_World_Temporary_Permissions.world_uid = Worlds.uid "
-                    + "WHERE group_uid=(SELECT uid FROM Permission_Groups WHERE name=?)");
+                    + "WHERE group_uid=(SELECT uid FROM Permission_Groups WHERE name=?) AND timeout >= ?");
             pst.setString(1, groupName);
+            pst.setLong(2, currentTime);
             rs = pst.executeQuery();
             while (rs.next()) {
-                builder.addNode(rs.getString("permission_node"), rs.getString("name"), rs.getLong("timeout") - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                builder.addNode(rs.getString("permission_node"), rs.getString("name"), rs.getLong("timeout") - currentTime, TimeUnit.MILLISECONDS);
             }
             pst.close();
         } catch (SQLException e) {
@@ -0,0 +1,89 @@
+package com.overmc.overpermissions.internal.databases.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Purges expired temporary permissions from every temporary permission table in the background.<br>
+ * Rows are deleted in bounded chunks so that a large purge never holds the timeout index locks for long.
+ */
+public final class MySQLTempPermissionSweeper {
+    private static final String[] TEMP_TABLES = {"Player_Global_Temporary_Permissions", "Player_World_Temporary_Permissions", "Group_Global_Temporary_Permissions", "Group_World_Temporary_Permissions"};
+
+    private final Logger logger;
+    private final MySQLManager sqlManager;
+    private final int chunkSize;
+    private final long intervalMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("OverPermissions purge thread").setDaemon(true).build());
+
+    /**
+     * @param intervalMillis how often to purge, if this isn't positive the tables are only purged once, when the sweeper starts.
+     */
+    public MySQLTempPermissionSweeper(Logger logger, MySQLManager sqlManager, int chunkSize, long intervalMillis) {
+        Preconditions.checkArgument(chunkSize > 0, "chunk size <= 0");
+        this.logger = logger;
+        this.sqlManager = sqlManager;
+        this.chunkSize = chunkSize;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void start( ) {
+        Runnable sweep = new Runnable() {
+            @Override
+            public void run( ) {
+                try {
+                    int purged = sweep(System.currentTimeMillis());
+                    if (purged > 0) {
+                        logger.fine("Purged " + purged + " expired temporary permissions.");
+                    }
+                } catch (SQLException | RuntimeException e) { // An exception would stop every later run.
+                    logger.log(Level.WARNING, "Failed to purge expired temporary permissions.", e);
+                }
+            }
+        };
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(sweep, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(sweep);
+        }
+    }
+
+    public void shutdown( ) {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return the number of rows deleted.
+     */
+    int sweep(long currentTime) throws SQLException {
+        int purged = 0;
+        for (String table : TEMP_TABLES) {
+            PreparedStatement pst = null;
+            try (Connection con = sqlManager.getConnection()) {
+                pst = con.prepareStatement("DELETE FROM " + table + " WHERE timeout < ? LIMIT " + chunkSize);
+                pst.setLong(1, currentTime);
+                int deleted;
+                do {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return purged;
+                    }
+                    deleted = pst.executeUpdate();
+                    purged += deleted;
+                } while (deleted >= chunkSize);
+            } finally {
+                MySQLManager.attemptClose(pst);
+            }
+        }
+        return purged;
+    }
+}
@@ -21,24 +21,18 @@ public class MySQLTempPlayerDataSource implements TemporaryPermissionEntityDataS
         TemporaryNodeBatch.Builder builder = TemporaryNodeBatch.builder();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_Global_Temporary_Permissions WHERE timeout < ?"); //Purge global tables of outdated temp permissions
-            pst.setLong(1, System.currentTimeMillis());
-            pst.executeUpdate();
-            pst.close();
-            pst = con.prepareStatement("DELETE FROM Player_World_Temporary_Permissions WHERE timeout < ?"); //Purge world tables of outdated temp permissions
-            pst.setLong(1, System.currentTimeMillis());
-            pst.executeUpdate();
-            pst.close();
+            long currentTime = System.currentTimeMillis(); // Expired rows are left for the purge sweeper to delete.
             pst = con.prepareStatement(""
                     + "SELECT permission_node, timeout "
                     + "FROM Player_Global_Temporary_Permissions "
                     + "INNER JOIN Permissions ON Player_Global_Temporary_Permissions.permission_uid=Permissions.uid "
-                    + "WHERE player_uid=(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?)");
+                    + "WHERE player_uid=(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?) AND timeout >= ?");
             pst.setLong(1, entityUniqueId.getLeastSignificantBits());
             pst.setLong(2, entityUniqueId.getMostSignificantBits());
+            pst.setLong(3, currentTime);
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
-                builder.addGlobalNode(rs.getString("permission_node"), rs.getLong("timeout") - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                builder.addGlobalNode(rs.getString("permission_node"), rs.getLong("timeout") - currentTime, TimeUnit.MILLISECONDS);
             }
             pst.close();
             pst = con.prepareStatement(""
@@ -46,12 +40,13 @@ public class MySQLTempPlayerDataSource implements TemporaryPermissionEntityDataS
                     + "FROM Player_World_Temporary_Permissions "
                     + "INNER JOIN Permissions ON Player_World_Temporary_Permissions.permission_uid = Permissions.uid "
                     + "INNER JOIN Worlds ON Player_World_Temporary_Permissions.world_uid = Worlds.uid "
-                    + "WHERE player_uid=(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?)");
+                    + "WHERE player_uid=(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?) AND timeout >= ?");
             pst.setLong(1, entityUniqueId.getLeastSignificantBits());
             pst.setLong(2, entityUniqueId.getMostSignificantBits());
+            pst.setLong(3, currentTime);
             rs = pst.executeQuery();
             while (rs.next()) {
-                builder.addNode(rs.getString("permission_node"), rs.getString("name"), rs.getLong("timeout") - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                builder.addNode(rs.getString("permission_node"), rs.getString("name"), rs.getLong("timeout") - currentTime, TimeUnit.MILLISECONDS);
             }
             pst.close();
         } catch (SQLException e) {
@@ -0,0 +1,51 @@
+package com.overmc.overpermissions.internal.databases.mysql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.overmc.overpermissions.internal.databases.SingleConnectionPool;
+
+/**
+ * Runs the statements made on a connection as a single transaction, so that a batch is committed once instead of once per statement.<br>
+ * The transaction is rolled back if it's closed without being committed.<br>
+ * The connection of a {@link SingleConnectionPool} is shared by every thread at once, so statements on it are still committed on their own.
+ */
+final class MySQLTransaction implements AutoCloseable {
+    private final Connection con;
+    private final boolean active;
+    private boolean committed;
+
+    private MySQLTransaction(Connection con, boolean active) {
+        this.con = con;
+        this.active = active;
+    }
+
+    static MySQLTransaction begin(Connection con) throws SQLException {
+        if ((con instanceof SingleConnectionPool.UncloseableConnection) || !con.getAutoCommit()) { // Shared, or already in a transaction.
+            return new MySQLTransaction(con, false);
+        }
+        con.setAutoCommit(false);
+        return new MySQLTransaction(con, true);
+    }
+
+    void commit( ) throws SQLException {
+        if (active) {
+            con.commit();
+        }
+        committed = true;
+    }
+
+    @Override
+    public void close( ) throws SQLException {
+        if (!active) {
+            return;
+        }
+        try {
+            if (!committed) {
+                con.rollback();
+            }
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+}
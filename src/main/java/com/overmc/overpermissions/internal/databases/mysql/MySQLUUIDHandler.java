@@ -17,26 +17,12 @@ public class MySQLUUIDHandler extends AbstractUUIDDataSource {
     public void setNameUuid(String name, UUID uuid) {
         PreparedStatement pst = null;
         try (Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Players(lower_uid, upper_uid) VALUES (?, ?)"); //Ensure a player uuid exists for this player.
-            pst.setLong(1, uuid.getLeastSignificantBits());
-            pst.setLong(2, uuid.getMostSignificantBits());
-            pst.executeUpdate();
-            pst.close();
-            pst = con
-                    .prepareStatement("INSERT INTO Uuid_Player_Maps(username, player_uid, last_seen) VALUES ("
-                            + "?, "
-                            + "(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?), "
-                            + "?"
-                            + ") ON DUPLICATE KEY UPDATE player_uid="
-                            + "(SELECT uid FROM Players WHERE lower_uid=? AND upper_uid=?), "
-                            + "last_seen=?");
+            int playerUid = sqlManager.getOrCreatePlayerUid(con, uuid); // Ensure a player uid exists for this player.
+            pst = con.prepareStatement("INSERT INTO Uuid_Player_Maps(username, player_uid, last_seen) VALUES (?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE player_uid=VALUES(player_uid), last_seen=VALUES(last_seen)");
             pst.setString(1, name);
-            pst.setLong(2, uuid.getLeastSignificantBits());
-            pst.setLong(3, uuid.getMostSignificantBits());
-            pst.setLong(4, System.currentTimeMillis());
-            pst.setLong(5, uuid.getLeastSignificantBits());
-            pst.setLong(6, uuid.getMostSignificantBits());
-            pst.setLong(7, System.currentTimeMillis());
+            pst.setInt(2, playerUid);
+            pst.setLong(3, System.currentTimeMillis());
             pst.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -67,9 +53,12 @@ public class MySQLUUIDHandler extends AbstractUUIDDataSource {
     public String getLastSeenName(UUID uuid) {
         PreparedStatement pst = null;
         try (Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("SELECT username FROM Uuid_Player_Maps WHERE lower_uid=? AND upper_uid=? ORDER BY last_seen DESC LIMIT 1");
-            pst.setLong(1, uuid.getLeastSignificantBits());
-            pst.setLong(2, uuid.getMostSignificantBits());
+            int playerUid = sqlManager.getPlayerUid(con, uuid);
+            if (playerUid == -1) {
+                return null;
+            }
+            pst = con.prepareStatement("SELECT username FROM Uuid_Player_Maps WHERE player_uid=? ORDER BY last_seen DESC LIMIT 1");
+            pst.setInt(1, playerUid);
             ResultSet rs = pst.executeQuery();
             if (rs.first()) {
                 return rs.getString("username");
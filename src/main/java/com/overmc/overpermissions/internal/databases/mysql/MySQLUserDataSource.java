@@ -7,6 +7,7 @@ import java.util.*;
 
 import com.overmc.overpermissions.api.*;
 import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+import com.overmc.overpermissions.internal.datasources.UserData;
 import com.overmc.overpermissions.internal.datasources.UserDataSource;
 
 public class MySQLUserDataSource implements UserDataSource {
@@ -16,6 +17,54 @@ public class MySQLUserDataSource implements UserDataSource {
     private volatile int userUid = -1;
     private volatile boolean playerCheckedForExistance = false;
 
+    private static final int KIND_PLAYER = 0;
+    private static final int KIND_PERMISSION = 1;
+    private static final int KIND_TEMP_PERMISSION = 2;
+    private static final int KIND_META = 3;
+    private static final int KIND_PARENT = 4;
+
+    private static final int LOAD_ALL_BRANCHES = 6;
+    private static final int LOAD_ALL_TEMPORARY_BRANCHES = 2;
+    private static final String LOAD_ALL_BY_UUID_QUERY = createLoadAllQuery(false);
+    private static final String LOAD_ALL_BY_UID_QUERY = createLoadAllQuery(true);
+
+    /**
+     * Every row of a player's data, tagged with its kind. world_name is null for global rows, and the player row carries its uid in the timeout column.<br>
+     * When the player's uid is already known, the rows are matched by it and Players is only read once.
+     */
+    private static String createLoadAllQuery(boolean byPlayerUid) {
+        String condition = byPlayerUid ? " WHERE player_uid=?" : " WHERE lower_uid=? AND upper_uid=?";
+        return ""
+                + "SELECT " + KIND_PLAYER + " AS kind, NULL AS world_name, NULL AS entry_key, NULL AS entry_value, uid AS timeout "
+                + "FROM Players" + (byPlayerUid ? " WHERE uid=?" : condition)
+                + " UNION ALL SELECT " + KIND_PERMISSION + ", NULL, permission_node, NULL, NULL "
+                + fromPlayerTable("Player_Global_Permissions", byPlayerUid)
+                + "INNER JOIN Permissions ON Player_Global_Permissions.permission_uid=Permissions.uid" + condition
+                + " UNION ALL SELECT " + KIND_PERMISSION + ", Worlds.name, permission_node, NULL, NULL "
+                + fromPlayerTable("Player_World_Permissions", byPlayerUid)
+                + "INNER JOIN Permissions ON Player_World_Permissions.permission_uid=Permissions.uid "
+                + "INNER JOIN Worlds ON Player_World_Permissions.world_uid=Worlds.uid" + condition
+                + " UNION ALL SELECT " + KIND_META + ", NULL, meta_key, meta_value, NULL "
+                + fromPlayerTable("Player_Global_Meta", byPlayerUid).trim() + condition
+                + " UNION ALL SELECT " + KIND_META + ", Worlds.name, meta_key, meta_value, NULL "
+                + fromPlayerTable("Player_World_Meta", byPlayerUid)
+                + "INNER JOIN Worlds ON Player_World_Meta.world_uid=Worlds.uid" + condition
+                + " UNION ALL SELECT " + KIND_PARENT + ", NULL, Permission_Groups.name, NULL, NULL "
+                + fromPlayerTable("Player_Groups", byPlayerUid)
+                + "INNER JOIN Permission_Groups ON Player_Groups.group_uid=Permission_Groups.uid" + condition
+                + " UNION ALL SELECT " + KIND_TEMP_PERMISSION + ", NULL, permission_node, NULL, timeout "
+                + fromPlayerTable("Player_Global_Temporary_Permissions", byPlayerUid)
+                + "INNER JOIN Permissions ON Player_Global_Temporary_Permissions.permission_uid=Permissions.uid" + condition + " AND timeout >= ?"
+                + " UNION ALL SELECT " + KIND_TEMP_PERMISSION + ", Worlds.name, permission_node, NULL, timeout "
+                + fromPlayerTable("Player_World_Temporary_Permissions", byPlayerUid)
+                + "INNER JOIN Permissions ON Player_World_Temporary_Permissions.permission_uid=Permissions.uid "
+                + "INNER JOIN Worlds ON Player_World_Temporary_Permissions.world_uid=Worlds.uid" + condition + " AND timeout >= ?";
+    }
+
+    private static String fromPlayerTable(String table, boolean byPlayerUid) {
+        return "FROM " + table + " " + (byPlayerUid ? "" : ("INNER JOIN Players ON " + table + ".player_uid=Players.uid "));
+    }
+
     public MySQLUserDataSource(MySQLManager sqlManager, UUID uuid) {
         this.sqlManager = sqlManager;
         this.uuid = uuid;
@@ -48,39 +97,11 @@ public class MySQLUserDataSource implements UserDataSource {
     }
 
     private int getOrCreateDatabaseUserUid( ) {
-        PreparedStatement pst = null;
-        try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("SELECT select_or_insert_player(?, ?)");
-            pst.setLong(1, uuid.getLeastSignificantBits());
-            pst.setLong(2, uuid.getMostSignificantBits());
-            ResultSet rs = pst.executeQuery();
-            if (rs.first()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) { // TODO properly handle sql exceptions
-            e.printStackTrace();
-        } finally {
-            attemptClose(pst);
-        }
-        return -1;
+        return sqlManager.getOrCreatePlayerUid(uuid);
     }
 
     private int getDatabaseUserUid( ) {
-        PreparedStatement pst = null;
-        try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("SELECT uid FROM Players WHERE lower_uid = ? AND upper_uid = ?");
-            pst.setLong(1, uuid.getLeastSignificantBits());
-            pst.setLong(2, uuid.getMostSignificantBits());
-            ResultSet rs = pst.executeQuery();
-            if (rs.first()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) { // TODO properly handle sql exceptions
-            e.printStackTrace();
-        } finally {
-            attemptClose(pst);
-        }
-        return -1;
+        return sqlManager.getPlayerUid(uuid);
     }
 
     @Override
@@ -162,8 +183,8 @@ public class MySQLUserDataSource implements UserDataSource {
     public void addPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Permissions(permission_uid, player_uid) VALUES (select_or_insert_permission(?), ?)");
-            pst.setString(1, permissionNode);
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Permissions(permission_uid, player_uid) VALUES (?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
             pst.setInt(2, getOrCreateUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -177,13 +198,17 @@ public class MySQLUserDataSource implements UserDataSource {
     public void addPermissions(Iterable<String> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Permissions(permission_uid, player_uid) VALUES (select_or_insert_permission(?), ?)");
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Permissions(permission_uid, player_uid) VALUES (?, ?)");
             pst.setInt(2, getOrCreateUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
+                pst.setInt(1, permissionUids.get(node));
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -199,8 +224,12 @@ public class MySQLUserDataSource implements UserDataSource {
         }
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_Global_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND player_uid=?");
-            pst.setString(1, permissionNode);
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
+            pst = con.prepareStatement("DELETE FROM Player_Global_Permissions WHERE permission_uid=? AND player_uid=?");
+            pst.setInt(1, permissionUid);
             pst.setInt(2, uid);
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -218,13 +247,20 @@ public class MySQLUserDataSource implements UserDataSource {
         }
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_Global_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND player_uid=?");
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("DELETE FROM Player_Global_Permissions WHERE permission_uid=? AND player_uid=?");
             pst.setInt(2, getOrCreateUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
-                pst.addBatch();
+                Integer permissionUid = permissionUids.get(node);
+                if (permissionUid != null) {
+                    pst.setInt(1, permissionUid);
+                    pst.addBatch();
+                }
+            }
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -236,8 +272,8 @@ public class MySQLUserDataSource implements UserDataSource {
     public void addTempPermission(String permissionNode, long timeInMillis) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Temporary_Permissions(permission_uid, player_uid, timeout) VALUES (select_or_insert_permission(?), ?, ?)");
-            pst.setString(1, permissionNode);
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Temporary_Permissions(permission_uid, player_uid, timeout) VALUES (?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
             pst.setInt(2, getOrCreateUid());
             pst.setLong(3, timeInMillis);
             pst.executeUpdate();
@@ -252,14 +288,18 @@ public class MySQLUserDataSource implements UserDataSource {
     public void addTempPermissions(Iterable<TemporaryPermissionEntry> entries) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Temporary_Permissions(permission_uid, player_uid, timeout) VALUES (select_or_insert_permission(?), ?, ?)");
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, MySQLManager.getNodes(entries));
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_Global_Temporary_Permissions(permission_uid, player_uid, timeout) VALUES (?, ?, ?)");
             pst.setInt(2, getOrCreateUid());
             for (TemporaryPermissionEntry e : entries) {
-                pst.setString(1, e.getNode());
+                pst.setInt(1, permissionUids.get(e.getNode()));
                 pst.setLong(3, e.getExpirationTime());
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -275,8 +315,12 @@ public class MySQLUserDataSource implements UserDataSource {
         }
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_Global_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND player_uid=?");
-            pst.setString(1, permissionNode);
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
+            pst = con.prepareStatement("DELETE FROM Player_Global_Temporary_Permissions WHERE permission_uid=? AND player_uid=?");
+            pst.setInt(1, permissionUid);
             pst.setInt(2, uid);
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -294,13 +338,20 @@ public class MySQLUserDataSource implements UserDataSource {
         }
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_Global_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND player_uid=?");
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, MySQLManager.getNodes(entries));
+            pst = con.prepareStatement("DELETE FROM Player_Global_Temporary_Permissions WHERE permission_uid=? AND player_uid=?");
             pst.setInt(2, uid);
             for (TemporaryPermissionEntry e : entries) {
-                pst.setString(1, e.getNode());
-                pst.addBatch();
+                Integer permissionUid = permissionUids.get(e.getNode());
+                if (permissionUid != null) {
+                    pst.setInt(1, permissionUid);
+                    pst.addBatch();
+                }
+            }
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -364,8 +415,11 @@ public class MySQLUserDataSource implements UserDataSource {
                     insertStatement.addBatch();
                 }
             }
-            insertStatement.executeBatch();
-            deleteStatement.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                insertStatement.executeBatch();
+                deleteStatement.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -450,6 +504,66 @@ public class MySQLUserDataSource implements UserDataSource {
         return ret;
     }
 
+    @Override
+    public UserData getAllData( ) {
+        UserData data = new UserData();
+        int uid = -1;
+        PreparedStatement pst = null;
+        try(Connection con = sqlManager.getConnection()) {
+            int knownUid = (userUid != -1) ? userUid : sqlManager.getCachedPlayerUid(uuid);
+            pst = con.prepareStatement((knownUid == -1) ? LOAD_ALL_BY_UUID_QUERY : LOAD_ALL_BY_UID_QUERY);
+            long currentTime = System.currentTimeMillis();
+            int parameterIndex = 1;
+            for (int i = 0; i < (LOAD_ALL_BRANCHES + LOAD_ALL_TEMPORARY_BRANCHES); i++) {
+                if (knownUid == -1) {
+                    pst.setLong(parameterIndex++, uuid.getLeastSignificantBits());
+                    pst.setLong(parameterIndex++, uuid.getMostSignificantBits());
+                } else {
+                    pst.setInt(parameterIndex++, knownUid);
+                }
+                if (i >= LOAD_ALL_BRANCHES) { // Expired rows are left for the purge to clean up.
+                    pst.setLong(parameterIndex++, currentTime);
+                }
+            }
+            ResultSet rs = pst.executeQuery();
+            while (rs.next()) {
+                String worldName = rs.getString("world_name");
+                String key = rs.getString("entry_key");
+                switch (rs.getInt("kind")) {
+                    case KIND_PLAYER:
+                        uid = (int) rs.getLong("timeout");
+                        break;
+                    case KIND_PERMISSION:
+                        ((worldName == null) ? data : data.getOrCreateWorld(worldName)).addPermission(key);
+                        break;
+                    case KIND_TEMP_PERMISSION:
+                        ((worldName == null) ? data : data.getOrCreateWorld(worldName)).addTempPermission(new TemporaryPermissionEntry(key, rs.getLong("timeout")));
+                        break;
+                    case KIND_META:
+                        ((worldName == null) ? data : data.getOrCreateWorld(worldName)).setMeta(key, rs.getString("entry_value"));
+                        break;
+                    case KIND_PARENT:
+                        data.addParent(key);
+                        break;
+                }
+            }
+        } catch (SQLException e) { // Partial data would be cached as the whole user, and a user without parents gets the default group written.
+            throw MySQLManager.handleSqlException(e);
+        } finally {
+            attemptClose(pst);
+        }
+        synchronized (this) { // The player row came back with everything else, so there's no need to look it up again.
+            if (userUid == -1) {
+                userUid = uid;
+            }
+            playerCheckedForExistance = true;
+        }
+        if (uid != -1) {
+            sqlManager.cachePlayerUid(uuid, uid);
+        }
+        return data;
+    }
+
     @Override
     public PermissionEntityDataSource createWorldDataSource(String worldName) {
         return new MySQLUserWorldDataSource(sqlManager, this, worldName);
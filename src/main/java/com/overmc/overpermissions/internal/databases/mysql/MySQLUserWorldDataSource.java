@@ -14,20 +14,41 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     private final MySQLUserDataSource userSource;
 
     private final String worldName;
+    private volatile int worldUid; // Resolved once, a world's uid never changes.
 
     public MySQLUserWorldDataSource(MySQLManager sqlManager, MySQLUserDataSource userSource, String worldName) {
         this.sqlManager = sqlManager;
         this.userSource = userSource;
         this.worldName = worldName;
+        this.worldUid = sqlManager.getCachedWorldUid(worldName);
+    }
+
+    private int getWorldUid(Connection con) throws SQLException {
+        int uid = worldUid;
+        if (uid == -1) {
+            uid = sqlManager.getWorldUid(con, worldName);
+            worldUid = uid; // Still -1 if it isn't stored yet, so it's checked again next time.
+        }
+        return uid;
+    }
+
+    private int getOrCreateWorldUid(Connection con) throws SQLException {
+        int uid = worldUid;
+        if (uid == -1) {
+            uid = sqlManager.getOrCreateWorldUid(con, worldName);
+            worldUid = uid;
+        }
+        return uid;
     }
 
     @Override
     public void addPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_World_Permissions(permission_uid, world_uid, player_uid) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?)");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+            int worldUid = getOrCreateWorldUid(con);
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_World_Permissions(permission_uid, world_uid, player_uid) VALUES (?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -41,14 +62,19 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void addPermissions(Iterable<String> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("INSERT IGNORE INTO Player_World_Permissions(permission_uid, world_uid, player_uid) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?)");
-            pst.setString(2, worldName);
+            int worldUid = getOrCreateWorldUid(con);
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, permissionNodes);
+            pst = con.prepareStatement("INSERT IGNORE INTO Player_World_Permissions(permission_uid, world_uid, player_uid) VALUES (?, ?, ?)");
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             for (String node : permissionNodes) {
-                pst.setString(1, node);
+                pst.setInt(1, permissionUids.get(node));
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -60,10 +86,18 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void removePermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
             pst = con
-                    .prepareStatement("DELETE FROM Player_World_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("DELETE FROM Player_World_Permissions WHERE permission_uid=? AND world_uid=? AND player_uid=?");
+            pst.setInt(1, permissionUid);
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -75,21 +109,19 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
 
     @Override
     public void removePermissions(Iterable<String> permissionNodes) {
-        PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con
-                    .prepareStatement("DELETE FROM Player_World_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(2, worldName);
-            pst.setInt(3, userSource.getOrCreateUid());
-            for (String node : permissionNodes) {
-                pst.setString(1, node);
-                pst.addBatch();
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, permissionNodes);
+            int playerUid = userSource.getOrCreateUid();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                MySQLManager.deleteByPermissionUids(con, "DELETE FROM Player_World_Permissions WHERE world_uid=? AND player_uid=? AND permission_uid IN", permissionUids.values(), worldUid, playerUid);
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
     }
 
@@ -97,10 +129,11 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void addTempPermission(String permissionNode, long timeInMillis) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             pst = con
-                    .prepareStatement("INSERT IGNORE INTO Player_World_Temporary_Permissions(permission_uid, world_uid, player_uid, timeout) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?, ?)");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("INSERT IGNORE INTO Player_World_Temporary_Permissions(permission_uid, world_uid, player_uid, timeout) VALUES (?, ?, ?, ?)");
+            pst.setInt(1, sqlManager.getOrCreatePermissionUid(con, permissionNode));
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             pst.setLong(4, timeInMillis);
             pst.executeUpdate();
@@ -115,16 +148,21 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void addTempPermissions(Iterable<TemporaryPermissionEntry> permissionNodes) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
+            Map<String, Integer> permissionUids = sqlManager.getOrCreatePermissionUids(con, MySQLManager.getNodes(permissionNodes));
             pst = con
-                    .prepareStatement("INSERT IGNORE INTO Player_World_Temporary_Permissions(permission_uid, world_uid, player_uid, timeout) VALUES (select_or_insert_permission(?), select_or_insert_world(?), ?, ?)");
-            pst.setString(2, worldName);
+                    .prepareStatement("INSERT IGNORE INTO Player_World_Temporary_Permissions(permission_uid, world_uid, player_uid, timeout) VALUES (?, ?, ?, ?)");
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             for (TemporaryPermissionEntry e : permissionNodes) {
-                pst.setString(1, e.getNode());
+                pst.setInt(1, permissionUids.get(e.getNode()));
                 pst.setLong(4, e.getExpirationTime());
                 pst.addBatch();
             }
-            pst.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                pst.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -136,10 +174,18 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void removeTempPermission(String permissionNode) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            int permissionUid = sqlManager.getPermissionUid(con, permissionNode);
+            if (permissionUid == -1) {
+                return; // Never stored, so there's nothing to remove.
+            }
             pst = con
-                    .prepareStatement("DELETE FROM Player_World_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(1, permissionNode);
-            pst.setString(2, worldName);
+                    .prepareStatement("DELETE FROM Player_World_Temporary_Permissions WHERE permission_uid=? AND world_uid=? AND player_uid=?");
+            pst.setInt(1, permissionUid);
+            pst.setInt(2, worldUid);
             pst.setInt(3, userSource.getOrCreateUid());
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -151,21 +197,19 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
 
     @Override
     public void removeTempPermissions(Iterable<TemporaryPermissionEntry> permissionNodes) {
-        PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con
-                    .prepareStatement("DELETE FROM Player_World_Temporary_Permissions WHERE permission_uid=(SELECT uid FROM Permissions WHERE permission_node=?) AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(2, worldName);
-            pst.setInt(3, userSource.getOrCreateUid());
-            for (TemporaryPermissionEntry e : permissionNodes) {
-                pst.setString(1, e.getNode());
-                pst.addBatch();
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            Map<String, Integer> permissionUids = sqlManager.getPermissionUids(con, MySQLManager.getNodes(permissionNodes));
+            int playerUid = userSource.getOrCreateUid();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                MySQLManager.deleteByPermissionUids(con, "DELETE FROM Player_World_Temporary_Permissions WHERE world_uid=? AND player_uid=? AND permission_uid IN", permissionUids.values(), worldUid, playerUid);
+                transaction.commit();
             }
-            pst.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            attemptClose(pst);
         }
     }
 
@@ -173,10 +217,11 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void setMeta(String key, String value) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             pst = con
-                    .prepareStatement("INSERT INTO Player_World_Meta(player_uid, world_uid, meta_key, meta_value) VALUES (?, (SELECT uid FROM Worlds WHERE name=?), ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
+                    .prepareStatement("INSERT INTO Player_World_Meta(player_uid, world_uid, meta_key, meta_value) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
             pst.setInt(1, userSource.getOrCreateUid());
-            pst.setString(2, worldName);
+            pst.setInt(2, worldUid);
             pst.setString(3, key);
             pst.setString(4, value);
             pst.setString(5, value);
@@ -192,9 +237,13 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
     public void removeMeta(String key) {
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("DELETE FROM Player_World_Meta WHERE player_uid=? AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND meta_key=?");
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return; // The world was never stored, so it has no data.
+            }
+            pst = con.prepareStatement("DELETE FROM Player_World_Meta WHERE player_uid=? AND world_uid=? AND meta_key=?");
             pst.setInt(1, userSource.getOrCreateUid());
-            pst.setString(2, worldName);
+            pst.setInt(2, worldUid);
             pst.setString(3, key);
             pst.executeUpdate();
         } catch (SQLException e) {
@@ -209,13 +258,14 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
         PreparedStatement insertStatement = null;
         PreparedStatement deleteStatement = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getOrCreateWorldUid(con);
             insertStatement = con
-                    .prepareStatement("INSERT INTO Player_World_Meta(player_uid, world_uid, meta_key, meta_value) VALUES (?, (SELECT uid FROM Worlds WHERE name=?), ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
-            deleteStatement = con.prepareStatement("DELETE FROM Player_World_Meta WHERE player_uid=? AND world_uid=(SELECT uid FROM Worlds WHERE name=?) AND meta_key=?");
+                    .prepareStatement("INSERT INTO Player_World_Meta(player_uid, world_uid, meta_key, meta_value) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE meta_value = ?");
+            deleteStatement = con.prepareStatement("DELETE FROM Player_World_Meta WHERE player_uid=? AND world_uid=? AND meta_key=?");
             insertStatement.setInt(1, userSource.getOrCreateUid());
             deleteStatement.setInt(1, userSource.getOrCreateUid());
-            insertStatement.setString(2, worldName);
-            deleteStatement.setString(2, worldName);
+            insertStatement.setInt(2, worldUid);
+            deleteStatement.setInt(2, worldUid);
             for (MetadataEntry e : entries) {
                 if (e.getValue() == null) {
                     deleteStatement.setString(3, e.getKey());
@@ -227,8 +277,11 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
                     insertStatement.addBatch();
                 }
             }
-            insertStatement.executeBatch();
-            deleteStatement.executeBatch();
+            try (MySQLTransaction transaction = MySQLTransaction.begin(con)) {
+                insertStatement.executeBatch();
+                deleteStatement.executeBatch();
+                transaction.commit();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -242,9 +295,13 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
         ArrayList<String> ret = new ArrayList<>();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
             pst = con
-                    .prepareStatement("SELECT permission_node FROM Player_World_Permissions INNER JOIN Permissions ON Player_World_Permissions.permission_uid = Permissions.uid WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(1, worldName);
+                    .prepareStatement("SELECT permission_node FROM Player_World_Permissions INNER JOIN Permissions ON Player_World_Permissions.permission_uid = Permissions.uid WHERE world_uid=? AND player_uid=?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, userSource.getOrCreateUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -263,9 +320,13 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
         ArrayList<TemporaryPermissionEntry> ret = new ArrayList<>();
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
             pst = con
-                    .prepareStatement("SELECT permission_node, timeout FROM Player_World_Temporary_Permissions INNER JOIN Permissions ON Player_World_Temporary_Permissions.permission_uid = Permissions.uid WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid=?");
-            pst.setString(1, worldName);
+                    .prepareStatement("SELECT permission_node, timeout FROM Player_World_Temporary_Permissions INNER JOIN Permissions ON Player_World_Temporary_Permissions.permission_uid = Permissions.uid WHERE world_uid=? AND player_uid=?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, userSource.getOrCreateUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -284,8 +345,12 @@ public class MySQLUserWorldDataSource implements PermissionEntityDataSource {
         HashMap<String, String> ret = new HashMap<String, String>(64);
         PreparedStatement pst = null;
         try(Connection con = sqlManager.getConnection()) {
-            pst = con.prepareStatement("SELECT meta_key, meta_value FROM Player_World_Meta WHERE world_uid=(SELECT uid FROM Worlds WHERE name=?) AND player_uid = ?)");
-            pst.setString(1, worldName);
+            int worldUid = getWorldUid(con);
+            if (worldUid == -1) {
+                return ret; // The world was never stored, so it has no data.
+            }
+            pst = con.prepareStatement("SELECT meta_key, meta_value FROM Player_World_Meta WHERE world_uid=? AND player_uid = ?");
+            pst.setInt(1, worldUid);
             pst.setInt(2, userSource.getOrCreateUid());
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
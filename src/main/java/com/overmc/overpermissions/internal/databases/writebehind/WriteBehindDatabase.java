@@ -0,0 +1,94 @@
+package com.overmc.overpermissions.internal.databases.writebehind;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.overmc.overpermissions.internal.databases.Database;
+import com.overmc.overpermissions.internal.datasources.*;
+
+/**
+ * A database that queues permission and metadata changes and writes them in batches on a background thread, instead of making a round trip for every change.<br>
+ * Anything that reads across entities writes every queued change first, and every queued change is written on shutdown.
+ */
+public final class WriteBehindDatabase implements Database {
+    private final Database delegate;
+    private final WriteBehindWriter writer;
+
+    public WriteBehindDatabase(Logger logger, Database delegate, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(delegate, "delegate");
+        Preconditions.checkArgument(delay >= 0, "delay can't be negative");
+        this.delegate = delegate;
+        this.writer = new WriteBehindWriter(logger, delay, unit);
+    }
+
+    /**
+     * Write every queued change now.
+     */
+    public void flushAll( ) {
+        writer.flushAll();
+    }
+
+    @Override
+    public UserDataSource createUserDataSource(UUID userUuid) {
+        return new WriteBehindUserDataSource(delegate.createUserDataSource(userUuid), writer);
+    }
+
+    @Override
+    public GroupDataSource createGroupDataSource(String groupName) {
+        return new WriteBehindGroupDataSource(delegate.createGroupDataSource(groupName), writer);
+    }
+
+    @Override
+    public GroupManagerDataSource createGroupManagerDataSource( ) {
+        final GroupManagerDataSource groupManagerDelegate = delegate.createGroupManagerDataSource();
+        return new GroupManagerDataSource() {
+            @Override
+            public Collection<GroupDataEntry> getGroupEntries( ) {
+                flushAll();
+                return groupManagerDelegate.getGroupEntries();
+            }
+
+            @Override
+            public BulkGroupData getAllGroupData( ) {
+                flushAll();
+                return groupManagerDelegate.getAllGroupData();
+            }
+
+            @Override
+            public void createGroup(String name, int priority) {
+                flushAll();
+                groupManagerDelegate.createGroup(name, priority);
+            }
+
+            @Override
+            public void deleteGroup(String name) {
+                flushAll();
+                groupManagerDelegate.deleteGroup(name);
+            }
+        };
+    }
+
+    @Override
+    public TemporaryPermissionEntityDataSource createTempGroupDataSource(String groupName) {
+        return delegate.createTempGroupDataSource(groupName);
+    }
+
+    @Override
+    public TemporaryPermissionEntityDataSource createTempPlayerDataSource(UUID playerUniqueId) {
+        return delegate.createTempPlayerDataSource(playerUniqueId);
+    }
+
+    @Override
+    public UUIDHandler getUUIDHandler( ) {
+        return delegate.getUUIDHandler();
+    }
+
+    @Override
+    public void shutdown( ) {
+        writer.shutdown();
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,263 @@
+package com.overmc.overpermissions.internal.databases.writebehind;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.overmc.overpermissions.api.MetadataEntry;
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+
+/**
+ * A data source that queues an entity's changes and writes them in batches on the write behind thread.<br>
+ * Only the latest change to each node or key is kept, which preserves the outcome because every change replaces the previous state.
+ * Nodes and keys are matched regardless of case, like the local entities do, but are written as the latest change gave them.
+ * Reads write this data source's queued changes first, and loading a user writes every queued change, so reads always see them.
+ * A batch that fails to write is queued again behind any newer changes and retried with a growing delay.
+ */
+class WriteBehindEntityDataSource implements PermissionEntityDataSource {
+    private final PermissionEntityDataSource delegate;
+    private final WriteBehindWriter writer;
+
+    private final Object pendingLock = new Object();
+    private final Object flushLock = new Object(); // Keeps this entity's batches in order.
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private int failures; // Guarded by flushLock, how many flushes in a row have failed.
+    // Keyed by the lower case node or key.
+    private Map<String, PendingChange<Boolean>> pendingPermissions = new LinkedHashMap<>(); // True to add, false to remove.
+    private Map<String, PendingChange<Long>> pendingTempPermissions = new LinkedHashMap<>(); // The expiration time to add, null to remove.
+    private Map<String, PendingChange<String>> pendingMeta = new LinkedHashMap<>(); // The value to set, null to remove.
+
+    WriteBehindEntityDataSource(PermissionEntityDataSource delegate, WriteBehindWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    private static <T> void queue(Map<String, PendingChange<T>> pending, String name, T value) {
+        pending.put(name.toLowerCase(), new PendingChange<>(name, value));
+    }
+
+    private void scheduleFlush( ) {
+        if (scheduled.compareAndSet(false, true)) {
+            writer.schedule(this);
+        }
+    }
+
+    /**
+     * Wraps one of this entity's world data sources, so that its changes are queued too.
+     */
+    protected PermissionEntityDataSource wrapWorldDataSource(PermissionEntityDataSource worldDataSource) {
+        return new WriteBehindEntityDataSource(worldDataSource, writer);
+    }
+
+    /**
+     * Write every queued change, for reads that span this entity's worlds or that other data sources for the same entity may have queued changes for.
+     */
+    protected void flushAll( ) {
+        writer.flushAll();
+    }
+
+    private static <T> Map<String, PendingChange<T>> requeue(Map<String, PendingChange<T>> failed, Map<String, PendingChange<T>> pending) {
+        Map<String, PendingChange<T>> ret = new LinkedHashMap<>(failed);
+        ret.putAll(pending); // Changes queued since the batch was taken are newer.
+        return ret;
+    }
+
+    /**
+     * Write every change queued for this entity, on the calling thread.
+     *
+     * @throws RuntimeException if the changes couldn't be written, they're queued again and a retry is scheduled.
+     */
+    void flush( ) {
+        synchronized (flushLock) {
+            Map<String, PendingChange<Boolean>> permissions;
+            Map<String, PendingChange<Long>> tempPermissions;
+            Map<String, PendingChange<String>> meta;
+            synchronized (pendingLock) {
+                scheduled.set(false); // Changes queued after this point schedule another flush.
+                if (pendingPermissions.isEmpty() && pendingTempPermissions.isEmpty() && pendingMeta.isEmpty()) {
+                    return;
+                }
+                permissions = pendingPermissions;
+                tempPermissions = pendingTempPermissions;
+                meta = pendingMeta;
+                pendingPermissions = new LinkedHashMap<>();
+                pendingTempPermissions = new LinkedHashMap<>();
+                pendingMeta = new LinkedHashMap<>();
+            }
+            List<String> removedPermissions = new ArrayList<>();
+            List<String> addedPermissions = new ArrayList<>();
+            for (PendingChange<Boolean> change : permissions.values()) {
+                (change.value ? addedPermissions : removedPermissions).add(change.name);
+            }
+            List<TemporaryPermissionEntry> removedTempPermissions = new ArrayList<>();
+            List<TemporaryPermissionEntry> addedTempPermissions = new ArrayList<>();
+            for (PendingChange<Long> change : tempPermissions.values()) {
+                if (change.value == null) {
+                    removedTempPermissions.add(new TemporaryPermissionEntry(change.name, 0L));
+                } else {
+                    addedTempPermissions.add(new TemporaryPermissionEntry(change.name, change.value));
+                }
+            }
+            List<MetadataEntry> metaEntries = new ArrayList<>(meta.size());
+            for (PendingChange<String> change : meta.values()) {
+                metaEntries.add(new MetadataEntry(change.name, change.value));
+            }
+            try {
+                if (!removedPermissions.isEmpty()) {
+                    delegate.removePermissions(removedPermissions);
+                }
+                if (!addedPermissions.isEmpty()) {
+                    delegate.addPermissions(addedPermissions);
+                }
+                if (!removedTempPermissions.isEmpty()) {
+                    delegate.removeTempPermissions(removedTempPermissions);
+                }
+                if (!addedTempPermissions.isEmpty()) {
+                    delegate.addTempPermissions(addedTempPermissions);
+                }
+                if (!metaEntries.isEmpty()) {
+                    delegate.setMetaEntries(metaEntries);
+                }
+                failures = 0;
+            } catch (RuntimeException e) {
+                // Every write is idempotent, so the parts of the batch that made it are simply written again.
+                synchronized (pendingLock) {
+                    pendingPermissions = requeue(permissions, pendingPermissions);
+                    pendingTempPermissions = requeue(tempPermissions, pendingTempPermissions);
+                    pendingMeta = requeue(meta, pendingMeta);
+                }
+                failures++;
+                if (scheduled.compareAndSet(false, true)) {
+                    writer.scheduleRetry(this, failures);
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> getPermissions( ) {
+        flush();
+        return delegate.getPermissions();
+    }
+
+    @Override
+    public Collection<TemporaryPermissionEntry> getTempPermissions( ) {
+        flush();
+        return delegate.getTempPermissions();
+    }
+
+    @Override
+    public Map<String, String> getMetadata( ) {
+        flush();
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public void addPermission(String permission) {
+        synchronized (pendingLock) {
+            queue(pendingPermissions, permission, true);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void addPermissions(Iterable<String> permissions) {
+        synchronized (pendingLock) {
+            for (String permission : permissions) {
+                queue(pendingPermissions, permission, true);
+            }
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void removePermission(String permission) {
+        synchronized (pendingLock) {
+            queue(pendingPermissions, permission, false);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void removePermissions(Iterable<String> permissions) {
+        synchronized (pendingLock) {
+            for (String permission : permissions) {
+                queue(pendingPermissions, permission, false);
+            }
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void addTempPermission(String permission, long timeInMillis) {
+        synchronized (pendingLock) {
+            queue(pendingTempPermissions, permission, timeInMillis);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void addTempPermissions(Iterable<TemporaryPermissionEntry> permissions) {
+        synchronized (pendingLock) {
+            for (TemporaryPermissionEntry e : permissions) {
+                queue(pendingTempPermissions, e.getNode(), e.getExpirationTime());
+            }
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void removeTempPermission(String permission) {
+        synchronized (pendingLock) {
+            queue(pendingTempPermissions, permission, null);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void removeTempPermissions(Iterable<TemporaryPermissionEntry> permissions) {
+        synchronized (pendingLock) {
+            for (TemporaryPermissionEntry e : permissions) {
+                queue(pendingTempPermissions, e.getNode(), null);
+            }
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void setMeta(String key, String value) {
+        synchronized (pendingLock) {
+            queue(pendingMeta, key, value);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void removeMeta(String key) {
+        synchronized (pendingLock) {
+            queue(pendingMeta, key, null);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void setMetaEntries(Iterable<MetadataEntry> entries) {
+        synchronized (pendingLock) {
+            for (MetadataEntry e : entries) {
+                queue(pendingMeta, e.getKey(), e.getValue());
+            }
+        }
+        scheduleFlush();
+    }
+
+    private static final class PendingChange<T> {
+        private final String name;
+        private final T value;
+
+        private PendingChange(String name, T value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.overmc.overpermissions.internal.databases.writebehind;
+
+import java.util.Collection;
+
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.internal.datasources.GroupDataSource;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+
+/**
+ * Queues a group's permission and metadata changes, hierarchy changes are still written immediately.
+ */
+final class WriteBehindGroupDataSource extends WriteBehindEntityDataSource implements GroupDataSource {
+    private final GroupDataSource delegate;
+
+    WriteBehindGroupDataSource(GroupDataSource delegate, WriteBehindWriter writer) {
+        super(delegate, writer);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public PermissionEntityDataSource createWorldDataSource(String worldName) {
+        return wrapWorldDataSource(delegate.createWorldDataSource(worldName));
+    }
+
+    @Override
+    public int getPriority( ) {
+        return delegate.getPriority();
+    }
+
+    @Override
+    public void addParent(PermissionGroup parent) {
+        delegate.addParent(parent);
+    }
+
+    @Override
+    public void removeParent(PermissionGroup parent) {
+        delegate.removeParent(parent);
+    }
+
+    @Override
+    public void addChild(PermissionGroup child) {
+        delegate.addChild(child);
+    }
+
+    @Override
+    public void removeChild(PermissionGroup child) {
+        delegate.removeChild(child);
+    }
+
+    @Override
+    public Collection<String> getParents( ) {
+        return delegate.getParents();
+    }
+
+    @Override
+    public Collection<String> getChildren( ) {
+        return delegate.getChildren();
+    }
+}
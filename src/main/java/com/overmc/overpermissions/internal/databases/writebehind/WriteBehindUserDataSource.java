@@ -0,0 +1,57 @@
+package com.overmc.overpermissions.internal.databases.writebehind;
+
+import java.util.Collection;
+
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+import com.overmc.overpermissions.internal.datasources.UserData;
+import com.overmc.overpermissions.internal.datasources.UserDataSource;
+
+/**
+ * Queues a user's permission and metadata changes, parent changes are still written immediately.
+ */
+final class WriteBehindUserDataSource extends WriteBehindEntityDataSource implements UserDataSource {
+    private final UserDataSource delegate;
+
+    WriteBehindUserDataSource(UserDataSource delegate, WriteBehindWriter writer) {
+        super(delegate, writer);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public PermissionEntityDataSource createWorldDataSource(String worldName) {
+        return wrapWorldDataSource(delegate.createWorldDataSource(worldName));
+    }
+
+    @Override
+    public void addParent(PermissionGroup parent) {
+        delegate.addParent(parent);
+    }
+
+    @Override
+    public void removeParent(PermissionGroup parent) {
+        delegate.removeParent(parent);
+    }
+
+    @Override
+    public void setParent(PermissionGroup parent) {
+        delegate.setParent(parent);
+    }
+
+    @Override
+    public Collection<String> getParents( ) {
+        return delegate.getParents();
+    }
+
+    @Override
+    public boolean doesUserExist( ) {
+        flushAll(); // The queued changes may be what creates the user, and they may be on the data source of a user that was unloaded.
+        return delegate.doesUserExist();
+    }
+
+    @Override
+    public UserData getAllData( ) {
+        flushAll(); // A user that was unloaded and loaded again gets a new data source, the old one may still have changes queued.
+        return delegate.getAllData();
+    }
+}
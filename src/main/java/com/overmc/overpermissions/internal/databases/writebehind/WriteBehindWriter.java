@@ -0,0 +1,122 @@
+package com.overmc.overpermissions.internal.databases.writebehind;
+
+import java.util.Iterator;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The dedicated thread that writes queued changes to the database once they've had a chance to coalesce.
+ */
+final class WriteBehindWriter implements Runnable {
+    private static final long MIN_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10); // Keeps a zero delay from spinning while nothing's queued.
+    private static final long INITIAL_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Logger logger;
+    private final long delayNanos;
+    private final DelayQueue<ScheduledFlush> scheduledFlushes = new DelayQueue<>();
+    private final Object flushLock = new Object(); // Held for every flush, so that flushAll can wait for the one in progress.
+    private final Thread thread;
+
+    WriteBehindWriter(Logger logger, long delay, TimeUnit unit) {
+        this.logger = logger;
+        this.delayNanos = unit.toNanos(delay);
+        this.thread = new Thread(this, "OverPermissions write behind thread");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void schedule(WriteBehindEntityDataSource source) {
+        scheduledFlushes.add(new ScheduledFlush(source, System.nanoTime() + delayNanos));
+    }
+
+    /**
+     * Schedule another attempt at a flush that failed, doubling the wait with every failure in a row.
+     */
+    void scheduleRetry(WriteBehindEntityDataSource source, int failures) {
+        long retryNanos = INITIAL_RETRY_NANOS << Math.min(failures - 1, 6);
+        scheduledFlushes.add(new ScheduledFlush(source, System.nanoTime() + Math.min(retryNanos, MAX_RETRY_NANOS)));
+    }
+
+    @Override
+    public void run( ) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                synchronized (flushLock) { // Taken and written under the same lock, so flushAll never misses a flush that's been taken.
+                    ScheduledFlush scheduledFlush = scheduledFlushes.poll();
+                    if (scheduledFlush != null) {
+                        flushSafely(scheduledFlush.source);
+                        continue;
+                    }
+                    // A flush that's scheduled while this waits is due after the delay at the soonest, so this never waits longer than that.
+                    long waitNanos = Math.max(delayNanos, MIN_IDLE_WAIT_NANOS);
+                    ScheduledFlush next = scheduledFlushes.peek();
+                    if (next != null) {
+                        waitNanos = Math.min(waitNanos, next.getDelay(TimeUnit.NANOSECONDS));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(flushLock, Math.max(1L, waitNanos));
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutting down, whatever is left is written by flushAll.
+        }
+    }
+
+    /**
+     * Write every queued change now, waiting for a flush that's already in progress.
+     */
+    void flushAll( ) {
+        synchronized (flushLock) {
+            for (Iterator<ScheduledFlush> it = scheduledFlushes.iterator(); it.hasNext();) {
+                ScheduledFlush scheduledFlush = it.next();
+                it.remove();
+                flushSafely(scheduledFlush.source);
+            }
+        }
+    }
+
+    void shutdown( ) {
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        if (!scheduledFlushes.isEmpty()) {
+            logger.severe("Queued permission changes couldn't be written to the database before shutting down, they were lost.");
+        }
+    }
+
+    private void flushSafely(WriteBehindEntityDataSource source) {
+        try {
+            source.flush();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to write queued permission changes to the database, they'll be retried.", e);
+        }
+    }
+
+    private static final class ScheduledFlush implements Delayed {
+        private final WriteBehindEntityDataSource source;
+        private final long flushTime;
+
+        ScheduledFlush(WriteBehindEntityDataSource source, long flushTime) {
+            this.source = source;
+            this.flushTime = flushTime;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(flushTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            long difference = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return (difference < 0) ? -1 : ((difference > 0) ? 1 : 0);
+        }
+    }
+}
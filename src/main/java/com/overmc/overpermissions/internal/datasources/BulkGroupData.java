@@ -0,0 +1,96 @@
+package com.overmc.overpermissions.internal.datasources;
+
+import java.util.*;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Every group's data, read in bulk so that it can be loaded without a round trip per group.<br>
+ * Group and world names are looked up case insensitively.
+ */
+public final class BulkGroupData {
+    private final Map<String, GroupData> groups = new LinkedHashMap<>();
+    private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+
+    public GroupData addGroup(String name, int priority) {
+        Preconditions.checkNotNull(name, "name");
+        GroupData group = new GroupData(name, priority);
+        groups.put(name.toLowerCase(), group);
+        return group;
+    }
+
+    /**
+     * @return the group by the given name, or null if it wasn't loaded.
+     */
+    public GroupData getGroup(String name) {
+        Preconditions.checkNotNull(name, "name");
+        return groups.get(name.toLowerCase());
+    }
+
+    public Collection<GroupData> getGroups( ) {
+        return Collections.unmodifiableCollection(groups.values());
+    }
+
+    /**
+     * Record how long a phase of loading took, phases are reported in the order that they're recorded.
+     */
+    public void recordPhase(String phase, long timeInMillis) {
+        Long previousTime = phaseTimes.get(phase);
+        phaseTimes.put(phase, (previousTime == null) ? timeInMillis : (previousTime + timeInMillis));
+    }
+
+    public Map<String, Long> getPhaseTimes( ) {
+        return Collections.unmodifiableMap(phaseTimes);
+    }
+
+    public static final class GroupData extends PermissionEntityData {
+        private final String name;
+        private final int priority;
+        private final List<String> parents = new ArrayList<>();
+        private final List<String> children = new ArrayList<>();
+        private final Map<String, PermissionEntityData> worlds = new HashMap<>();
+
+        private GroupData(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        public String getName( ) {
+            return name;
+        }
+
+        public int getPriority( ) {
+            return priority;
+        }
+
+        public void addParent(String parentName) {
+            parents.add(parentName);
+        }
+
+        public void addChild(String childName) {
+            children.add(childName);
+        }
+
+        public Collection<String> getParents( ) {
+            return parents;
+        }
+
+        public Collection<String> getChildren( ) {
+            return children;
+        }
+
+        public PermissionEntityData getOrCreateWorld(String worldName) {
+            worldName = worldName.toLowerCase();
+            PermissionEntityData world = worlds.get(worldName);
+            if (world == null) {
+                world = new PermissionEntityData();
+                worlds.put(worldName, world);
+            }
+            return world;
+        }
+
+        public Map<String, PermissionEntityData> getWorlds( ) {
+            return Collections.unmodifiableMap(worlds);
+        }
+    }
+}
@@ -6,6 +6,11 @@ public interface GroupManagerDataSource {
 
     Collection<GroupDataEntry> getGroupEntries( );
 
+    /**
+     * Read every group along with its permissions, temporary permissions, metadata and parents, in as few round trips as possible.
+     */
+    BulkGroupData getAllGroupData( );
+
     void createGroup(String name, int priority);
 
     void deleteGroup(String name);
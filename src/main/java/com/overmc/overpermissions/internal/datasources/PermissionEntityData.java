@@ -0,0 +1,38 @@
+package com.overmc.overpermissions.internal.datasources;
+
+import java.util.*;
+
+import com.overmc.overpermissions.api.TemporaryPermissionEntry;
+
+/**
+ * The permissions, temporary permissions and metadata of a single entity, read ahead of time so that it can be loaded without querying its data source.
+ */
+public class PermissionEntityData {
+    private final Set<String> permissions = new HashSet<>();
+    private final List<TemporaryPermissionEntry> tempPermissions = new ArrayList<>();
+    private final Map<String, String> metadata = new HashMap<>();
+
+    public void addPermission(String permission) {
+        permissions.add(permission);
+    }
+
+    public void addTempPermission(TemporaryPermissionEntry entry) {
+        tempPermissions.add(entry);
+    }
+
+    public void setMeta(String key, String value) {
+        metadata.put(key, value);
+    }
+
+    public Collection<String> getPermissions( ) {
+        return permissions;
+    }
+
+    public Collection<TemporaryPermissionEntry> getTempPermissions( ) {
+        return tempPermissions;
+    }
+
+    public Map<String, String> getMetadata( ) {
+        return metadata;
+    }
+}
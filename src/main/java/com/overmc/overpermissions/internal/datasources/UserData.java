@@ -0,0 +1,34 @@
+package com.overmc.overpermissions.internal.datasources;
+
+import java.util.*;
+
+/**
+ * All of a single user's data, read at once so that it can be loaded in a single round trip.<br>
+ * World names are looked up case insensitively.
+ */
+public final class UserData extends PermissionEntityData {
+    private final List<String> parents = new ArrayList<>();
+    private final Map<String, PermissionEntityData> worlds = new HashMap<>();
+
+    public void addParent(String parentName) {
+        parents.add(parentName);
+    }
+
+    public Collection<String> getParents( ) {
+        return parents;
+    }
+
+    public PermissionEntityData getOrCreateWorld(String worldName) {
+        worldName = worldName.toLowerCase();
+        PermissionEntityData world = worlds.get(worldName);
+        if (world == null) {
+            world = new PermissionEntityData();
+            worlds.put(worldName, world);
+        }
+        return world;
+    }
+
+    public Map<String, PermissionEntityData> getWorlds( ) {
+        return Collections.unmodifiableMap(worlds);
+    }
+}
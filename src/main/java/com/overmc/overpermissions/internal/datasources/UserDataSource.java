@@ -14,4 +14,10 @@ public interface UserDataSource extends PermissionEntityDataSource, WorldDataSou
     public Collection<String> getParents( );
 
     public boolean doesUserExist( );
+
+    /**
+     * Read all of this user's data, global and per world, in a single round trip.<br>
+     * If the data can't be read, this throws instead of returning whatever was read so far.
+     */
+    public UserData getAllData( );
 }
@@ -1,24 +1,22 @@
 package com.overmc.overpermissions.internal.injectoractions;
 
-import com.overmc.overpermissions.api.PermissionUser;
-import com.overmc.overpermissions.api.UserManager;
 import com.overmc.overpermissions.exceptions.StartException;
 import com.overmc.overpermissions.internal.bukkitclasses.PermissibleBaseUserBridge;
+import com.overmc.overpermissions.internal.localentities.LocalUserManager;
 import com.overmc.overpermissions.internal.util.ReflectionUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissibleBase;
 
 import java.lang.reflect.Field;
-import java.util.concurrent.Callable;
 
 public class BridgeInjectorAction implements WildcardAction {
     private final Class<?> craftHumanEntityClass;
     private final Field permField;
 
-    private final UserManager userManager;
+    private final LocalUserManager userManager;
 
-    public BridgeInjectorAction(UserManager userManager) {
+    public BridgeInjectorAction(LocalUserManager userManager) {
         this.userManager = userManager;
         try {
             craftHumanEntityClass = Class.forName(Bukkit.getServer().getClass().getPackage().getName() + ".entity.CraftHumanEntity");
@@ -40,7 +38,7 @@ public class BridgeInjectorAction implements WildcardAction {
     public void injectBridge(Player p) {
         try {
             PermissibleBase playerPermissibleBase = (PermissibleBase) permField.get(p);
-            permField.set(p, new PermissibleBaseUserBridge(p, new UserFetcher(p.getName())));
+            permField.set(p, new PermissibleBaseUserBridge(p, userManager));
             playerPermissibleBase.recalculatePermissions();
         } catch (IllegalArgumentException | IllegalAccessException e) {
             e.printStackTrace();
@@ -56,17 +54,4 @@ public class BridgeInjectorAction implements WildcardAction {
     public void deinitializePlayer(Player p) {
         // Do nothing
     }
-
-    private class UserFetcher implements Callable<PermissionUser> {
-        private final String username;
-
-        public UserFetcher(String username) {
-            this.username = username;
-        }
-
-        @Override
-        public PermissionUser call( ) throws Exception {
-            return userManager.getPermissionUser(username);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -8,10 +8,14 @@ import org.bukkit.permissions.Permission;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.overmc.overpermissions.api.*;
 import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData;
 import com.overmc.overpermissions.internal.datasources.GroupDataSource;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityData;
 
 /**
  * A class that represents a ram stored version of a database group.<br>
@@ -20,12 +24,18 @@ import com.overmc.overpermissions.internal.datasources.GroupDataSource;
 public class LocalGroup extends LocalPermissionEntity implements PermissionGroup {
     private final GroupDataSource groupDataSource;
     private final TemporaryPermissionManager tempManager;
+    private final ParentDataPropagator propagator;
 
     private final String name;
     private final UUID uniqueId;
     private final Set<PermissionGroup> parents = new CopyOnWriteArraySet<>(); // These are fast for iteration, but fairly slow for modification.
     private final Set<PermissionGroup> children = new CopyOnWriteArraySet<>();
 
+    // Flattened inheritance, sorted by priority (highest first), and replaced whenever the hierarchy above this group changes.
+    private static final Object hierarchyLock = new Object();
+    private volatile ImmutableSet<PermissionGroup> ancestors = ImmutableSet.of();
+    private volatile ImmutableList<PermissionGroup> lineage = ImmutableList.<PermissionGroup>of(this);
+
     // World specific data
     private final ConcurrentMap<String, LocalGroupWorldData> worldDataMap = new ConcurrentHashMap<>();
 
@@ -36,13 +46,19 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
     private final Object priorityLock = new Object();
 
     public LocalGroup(GroupDataSource groupSource, TemporaryPermissionManager tempManager, String name, int priority, boolean wildcardSupport) {
+        this(groupSource, tempManager, new ParentDataPropagator(), name, priority, wildcardSupport);
+    }
+
+    public LocalGroup(GroupDataSource groupSource, TemporaryPermissionManager tempManager, ParentDataPropagator propagator, String name, int priority, boolean wildcardSupport) {
         super(groupSource, wildcardSupport);
         Preconditions.checkNotNull(groupSource, "groupSource");
         Preconditions.checkNotNull(tempManager, "tempManager");
+        Preconditions.checkNotNull(propagator, "propagator");
         Preconditions.checkNotNull(name, "name");
         Preconditions.checkArgument(priority >= 0, "Priority must be greater than or equal to 0.");
         this.groupDataSource = groupSource;
         this.tempManager = tempManager;
+        this.propagator = propagator;
         this.name = name;
         this.uniqueId = UUID.nameUUIDFromBytes(("LocalGroup:" + name).getBytes(Charsets.UTF_8));
         this.priority = priority;
@@ -68,6 +84,7 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
             world.reloadPermissions();
             world.recalculatePermissions();
             worldDataMap.put(worldName, world);
+            invalidateUserPermissionSnapshots(worldName);
         }
         return world;
     }
@@ -86,7 +103,13 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
     }
 
     public void reloadParentsAndChildren(GroupManager groupManager) {
-        Collection<String> newParentNames = groupDataSource.getParents();
+        loadParentsAndChildren(groupManager, groupDataSource.getParents(), groupDataSource.getChildren());
+    }
+
+    /**
+     * Replace this group's parents and children with the groups by the given names.
+     */
+    public void loadParentsAndChildren(GroupManager groupManager, Collection<String> newParentNames, Collection<String> newChildrenNames) {
         Collection<PermissionGroup> newParents = new ArrayList<PermissionGroup>(newParentNames.size());
         for (String name : newParentNames) {
             PermissionGroup g = groupManager.getGroup(name);
@@ -95,7 +118,6 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
             }
             newParents.add(g);
         }
-        Collection<String> newChildrenNames = groupDataSource.getChildren();
         Collection<PermissionGroup> newChildren = new ArrayList<PermissionGroup>(newChildrenNames.size());
         for (String name : newChildrenNames) {
             PermissionGroup g = groupManager.getGroup(name);
@@ -110,13 +132,80 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
         children.addAll(newChildren);
     }
 
+    /**
+     * Load this group's permissions and metadata, both global and per world, from already read data instead of its data source.
+     */
+    public void loadData(BulkGroupData.GroupData data) {
+        loadPermissions(data.getPermissions(), data.getTempPermissions());
+        loadMetadata(data.getMetadata());
+        recalculatePermissions();
+        for (Map.Entry<String, PermissionEntityData> entry : data.getWorlds().entrySet()) {
+            String worldName = entry.getKey();
+            PermissionEntityData worldData = entry.getValue();
+            LocalGroupWorldData world = new LocalGroupWorldData(this, worldName, tempManager, groupDataSource.createWorldDataSource(worldName));
+            world.loadPermissions(worldData.getPermissions(), worldData.getTempPermissions());
+            world.loadMetadata(worldData.getMetadata());
+            world.recalculatePermissions();
+            worldDataMap.put(worldName, world);
+        }
+    }
+
+    /**
+     * Invalidate the compiled permission snapshots of every user in this group, or in any of its children.
+     */
+    public void invalidateUserPermissionSnapshots( ) {
+        invalidateUserPermissionSnapshots(null, new HashSet<LocalGroup>());
+    }
+
+    /**
+     * Invalidate the compiled permission snapshots of a single world, for every user in this group or in any of its children.
+     */
+    public void invalidateUserPermissionSnapshots(String worldName) {
+        Preconditions.checkNotNull(worldName, "world name");
+        invalidateUserPermissionSnapshots(worldName, new HashSet<LocalGroup>());
+    }
+
+    private void invalidateUserPermissionSnapshots(String worldName, Set<LocalGroup> visitedGroups) {
+        if (!visitedGroups.add(this)) {
+            return;
+        }
+        List<LocalUser> users;
+        synchronized (usersInGroup) {
+            users = new ArrayList<>(usersInGroup);
+        }
+        for (LocalUser user : users) {
+            if (worldName == null) {
+                user.invalidatePermissionSnapshots();
+            } else {
+                user.invalidatePermissionSnapshot(worldName);
+            }
+        }
+        for (PermissionGroup child : children) {
+            if (child instanceof LocalGroup) {
+                ((LocalGroup) child).invalidateUserPermissionSnapshots(worldName, visitedGroups);
+            }
+        }
+    }
+
+    /**
+     * Recalculate the parent data of every user in this group or any of its children, once per user.
+     */
     public void recalculatePlayerGroupData( ) {
-        for (LocalUser user : usersInGroup) {
-            user.recalculateParentData();
+        Set<LocalUser> affectedUsers = new HashSet<>();
+        collectAffectedUsers(affectedUsers, new HashSet<LocalGroup>());
+        propagator.recalculate(affectedUsers);
+    }
+
+    private void collectAffectedUsers(Set<LocalUser> users, Set<LocalGroup> visitedGroups) {
+        if (!visitedGroups.add(this)) {
+            return; // Already reached through another child.
+        }
+        synchronized (usersInGroup) {
+            users.addAll(usersInGroup);
         }
         for (PermissionGroup child : children) {
             if (child instanceof LocalGroup) {
-                ((LocalGroup) child).recalculatePlayerGroupData();
+                ((LocalGroup) child).collectAffectedUsers(users, visitedGroups);
             } else {
                 Bukkit.getLogger().warning("Group " + child.getName() + " (" + child.getClass().getName() + ")'s type isn't a local group, it's attributes can't be reloaded.");
             }
@@ -125,19 +214,29 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
 
     @Override
     public boolean hasGlobalPermission(String permission) {
-        Preconditions.checkNotNull(permission, "permission");
-        return hasInternalPermission(permission);
+        return getGlobalPermissionState(permission).isSet();
     }
 
     @Override
     public boolean hasPermission(String permission, String worldName) {
+        return getPermissionState(permission, worldName).isSet();
+    }
+
+    @Override
+    public PermissionState getGlobalPermissionState(String permission) {
+        Preconditions.checkNotNull(permission, "permission");
+        return getInternalPermissionState(permission);
+    }
+
+    @Override
+    public PermissionState getPermissionState(String permission, String worldName) {
         Preconditions.checkNotNull(permission, "permission");
         Preconditions.checkNotNull(worldName, "world name");
         LocalGroupWorldData w = getWorldData(worldName);
-        if (w != null) {
-            return w.hasInternalPermission(permission);
+        if (w == null) {
+            return PermissionState.UNSET;
         }
-        return false;
+        return w.getInternalPermissionState(permission);
     }
 
     @Override
@@ -173,19 +272,12 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
 
     @Override
     public boolean getGlobalPermission(String permission) {
-        Preconditions.checkNotNull(permission, "permission");
-        return getInternalPermission(permission);
+        return getGlobalPermissionState(permission).getValue();
     }
 
     @Override
     public boolean getPermission(String permission, String worldName) {
-        Preconditions.checkNotNull(permission, "permission");
-        Preconditions.checkNotNull(worldName, "world name");
-        LocalGroupWorldData w = getWorldData(worldName);
-        if (w == null) {
-            return false;
-        }
-        return w.getInternalPermission(permission);
+        return getPermissionState(permission, worldName).getValue();
     }
 
     @Override
@@ -488,24 +580,33 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
 
     @Override
     public Set<PermissionGroup> getAllParents( ) {
-        Set<PermissionGroup> ret = Sets.newTreeSet();
-        for (PermissionGroup g : getParents()) {
-            ret.add(g);
-            ret.addAll(g.getAllParents());
-        }
-        return ret;
+        return ancestors; // Immutable, ordered by priority.
+    }
+
+    /**
+     * @return this group and all of its ancestors, sorted by priority. The list is immutable and shared, so users with this as their only parent can use it directly.
+     */
+    public ImmutableList<PermissionGroup> getLineage( ) {
+        return lineage;
     }
 
     @Override
     public boolean addParent(PermissionGroup parent) {
         Preconditions.checkNotNull(parent, "parent");
-        boolean success = parents.add(parent);
-        if (success) {
-            if (parent instanceof LocalGroup) {
-                ((LocalGroup) parent).addChild(this);
-            } else {
-                Bukkit.getLogger().warning("Invalid group to add a child to: " + parent.getClass().getName() + " (" + parent.getName() + ")");
+        boolean success;
+        synchronized (hierarchyLock) {
+            Preconditions.checkArgument(!parent.equals(this) && !parent.getAllParents().contains(this), "Adding %s as a parent of %s would create a cycle.", parent.getName(), name);
+            success = parents.add(parent);
+            if (success) {
+                if (parent instanceof LocalGroup) {
+                    ((LocalGroup) parent).addChild(this);
+                } else {
+                    Bukkit.getLogger().warning("Invalid group to add a child to: " + parent.getClass().getName() + " (" + parent.getName() + ")");
+                }
+                recalculateDescendantLineages();
             }
+        }
+        if (success) {
             recalculatePlayerGroupData();
             groupDataSource.addParent(parent);
         }
@@ -515,19 +616,95 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
     @Override
     public boolean removeParent(PermissionGroup parent) {
         Preconditions.checkNotNull(parent, "parent");
-        boolean success = parents.remove(parent);
-        if (success) {
-            if (parent instanceof LocalGroup) {
-                ((LocalGroup) parent).removeChild(this);
-            } else {
-                Bukkit.getLogger().warning("Invalid group to remove a child from: " + parent.getClass().getName() + " (" + parent.getName() + ")");
+        boolean success;
+        synchronized (hierarchyLock) {
+            success = parents.remove(parent);
+            if (success) {
+                if (parent instanceof LocalGroup) {
+                    ((LocalGroup) parent).removeChild(this);
+                } else {
+                    Bukkit.getLogger().warning("Invalid group to remove a child from: " + parent.getClass().getName() + " (" + parent.getName() + ")");
+                }
+                recalculateDescendantLineages();
             }
+        }
+        if (success) {
             recalculatePlayerGroupData();
             groupDataSource.removeParent(parent);
         }
         return success;
     }
 
+    /**
+     * Rebuild the lineage of every given group, parents before children.<br>
+     * Cycles loaded from the database are broken at the edge that closes them, and logged.
+     */
+    static void recalculateLineages(Collection<LocalGroup> groups) {
+        synchronized (hierarchyLock) {
+            Set<LocalGroup> done = new HashSet<>();
+            for (LocalGroup group : groups) {
+                group.recalculateLineageAfterParents(done, new HashSet<LocalGroup>());
+            }
+        }
+    }
+
+    private void recalculateLineageAfterParents(Set<LocalGroup> done, Set<LocalGroup> inProgress) {
+        if (done.contains(this)) {
+            return;
+        }
+        if (!inProgress.add(this)) {
+            Bukkit.getLogger().warning("Group " + name + " inherits from itself, the cycle is ignored.");
+            return;
+        }
+        for (PermissionGroup parent : parents) {
+            if (parent instanceof LocalGroup) {
+                ((LocalGroup) parent).recalculateLineageAfterParents(done, inProgress);
+            }
+        }
+        inProgress.remove(this);
+        recalculateLineage();
+        done.add(this);
+    }
+
+    private void recalculateDescendantLineages( ) { // Must hold the hierarchy lock.
+        List<LocalGroup> postOrder = new ArrayList<>();
+        collectDescendants(new HashSet<LocalGroup>(), postOrder);
+        for (int i = postOrder.size() - 1; i >= 0; i--) { // Reverse post order visits every group after all of its parents.
+            postOrder.get(i).recalculateLineage();
+        }
+    }
+
+    private void collectDescendants(Set<LocalGroup> visitedGroups, List<LocalGroup> postOrder) {
+        if (!visitedGroups.add(this)) {
+            return;
+        }
+        for (PermissionGroup child : children) {
+            if (child instanceof LocalGroup) {
+                ((LocalGroup) child).collectDescendants(visitedGroups, postOrder);
+            }
+        }
+        postOrder.add(this);
+    }
+
+    private void recalculateLineage( ) { // Parents' lineages must already be current.
+        Set<PermissionGroup> merged = new LinkedHashSet<>();
+        for (PermissionGroup parent : parents) {
+            if (parent instanceof LocalGroup) {
+                merged.addAll(((LocalGroup) parent).lineage);
+            } else {
+                merged.add(parent);
+                merged.addAll(parent.getAllParents());
+            }
+        }
+        merged.remove(this); // Only possible with a cycle.
+        List<PermissionGroup> sorted = new ArrayList<>(merged);
+        Collections.sort(sorted);
+        ancestors = ImmutableSet.copyOf(sorted);
+        sorted.add(this);
+        Collections.sort(sorted);
+        lineage = ImmutableList.copyOf(sorted);
+    }
+
     private boolean addChild(PermissionGroup child) {
         Preconditions.checkNotNull(child, "child");
         boolean success = children.add(child);
@@ -580,6 +757,11 @@ public class LocalGroup extends LocalPermissionEntity implements PermissionGroup
         tempManager.cancelGlobalTemporaryPermission(this, node);
     }
 
+    @Override
+    protected void onPermissionsChanged( ) {
+        invalidateUserPermissionSnapshots();
+    }
+
     public void addUserToGroup(LocalUser user) {
         usersInGroup.add(user);
     }
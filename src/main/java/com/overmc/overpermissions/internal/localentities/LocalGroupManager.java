@@ -1,35 +1,48 @@
 package com.overmc.overpermissions.internal.localentities;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.overmc.overpermissions.api.GroupManager;
 import com.overmc.overpermissions.api.PermissionGroup;
 import com.overmc.overpermissions.exceptions.GroupAlreadyExistsException;
 import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData.GroupData;
 import com.overmc.overpermissions.internal.datasources.GroupManagerDataSource;
-import com.overmc.overpermissions.internal.datasources.GroupManagerDataSource.GroupDataEntry;
 import com.overmc.overpermissions.internal.datasources.GroupManagerDataSourceFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
 
 public class LocalGroupManager implements GroupManager {
+    private final Logger logger;
     private final GroupManagerDataSourceFactory sourceFactory;
     private final GroupManagerDataSource dataSource;
     private final TemporaryPermissionManager tempManager;
+    private final ParentDataPropagator propagator;
 
     private final Map<String, LocalGroup> groups = new HashMap<>();
     private final ReadWriteLock groupLock = new ReentrantReadWriteLock(); // Need fine grained control for atomic operations.
 
     private final boolean wildcardSupport;
 
-    public LocalGroupManager(GroupManagerDataSourceFactory sourceFactory, TemporaryPermissionManager tempManager, boolean wildcardSupport) {
+    public LocalGroupManager(Logger logger, GroupManagerDataSourceFactory sourceFactory, TemporaryPermissionManager tempManager, boolean wildcardSupport) {
+        this.logger = logger;
         this.sourceFactory = sourceFactory;
         this.tempManager = tempManager;
         this.dataSource = sourceFactory.createGroupManagerDataSource();
+        int propagatorThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        this.propagator = new ParentDataPropagator(Executors.newFixedThreadPool(propagatorThreads, new ThreadFactoryBuilder()
+                .setNameFormat("OverPermissions group propagation thread %d").setDaemon(true).build()), propagatorThreads);
 
         this.wildcardSupport = wildcardSupport;
     }
@@ -44,13 +57,15 @@ public class LocalGroupManager implements GroupManager {
             if (groups.containsKey(lowerName)) {
                 throw new GroupAlreadyExistsException("A group by the name of " + lowerName + " already exists.");
             }
-            LocalGroup group = new LocalGroup(sourceFactory.createGroupDataSource(lowerName), tempManager, name, priority, wildcardSupport);
+            LocalGroup group = new LocalGroup(sourceFactory.createGroupDataSource(lowerName), tempManager, propagator, name, priority, wildcardSupport);
             group.reloadMetadata();
             group.reloadParentsAndChildren(this);
             group.reloadPermissions();
+            group.recalculatePermissions();
             group.reloadWorldMetadata();
             group.reloadWorldPermissions();
             groups.put(lowerName, group);
+            LocalGroup.recalculateLineages(Collections.singletonList(group));
         } finally {
             groupLock.writeLock().unlock();
         }
@@ -110,30 +125,43 @@ public class LocalGroupManager implements GroupManager {
         }
     }
 
+    public void shutdown( ) {
+        propagator.shutdown();
+    }
+
     public void reloadGroups( ) {
+        long startTime = System.nanoTime();
+        BulkGroupData data = dataSource.getAllGroupData();
+        long loadedTime = System.nanoTime();
         groupLock.writeLock().lock();
         try {
             for (PermissionGroup g : groups.values()) {
                 tempManager.cancelTemporaryPermissions(g);
             }
             groups.clear();
-            Collection<GroupDataEntry> groupDataEntries = dataSource.getGroupEntries();
-            for (GroupDataEntry entry : groupDataEntries) {
-                String name = entry.getGroupName();
+            for (GroupData groupData : data.getGroups()) {
+                String name = groupData.getName();
                 String lowerName = name.toLowerCase();
-                LocalGroup group = new LocalGroup(sourceFactory.createGroupDataSource(lowerName), tempManager, name, entry.getPriority(), wildcardSupport);
-                group.reloadMetadata();
-                group.reloadPermissions();
-                group.reloadWorldMetadata();
-                group.reloadWorldPermissions();
+                LocalGroup group = new LocalGroup(sourceFactory.createGroupDataSource(lowerName), tempManager, propagator, name, groupData.getPriority(), wildcardSupport);
+                group.loadData(groupData);
                 groups.put(lowerName, group);
             }
         } finally {
             groupLock.writeLock().unlock();
         }
-        for (LocalGroup g : groups.values()) {
-            g.reloadParentsAndChildren(this);
-            tempManager.initializeGroupTemporaryPermissions(g); // Wouldn't make much sense to recalculate group's parents and children when they aren't defined yet.
+        long builtTime = System.nanoTime();
+        for (GroupData groupData : data.getGroups()) { // Wouldn't make much sense to recalculate group's parents and children when they aren't defined yet.
+            LocalGroup group = groups.get(groupData.getName().toLowerCase());
+            group.loadParentsAndChildren(this, groupData.getParents(), groupData.getChildren());
+            tempManager.initializeTemporaryPermissions(group, groupData, groupData.getWorlds());
         }
+        LocalGroup.recalculateLineages(groups.values());
+        long endTime = System.nanoTime();
+
+        Map<String, Long> phaseTimes = new LinkedHashMap<>(data.getPhaseTimes());
+        phaseTimes.put("building", TimeUnit.NANOSECONDS.toMillis(builtTime - loadedTime));
+        phaseTimes.put("hierarchy", TimeUnit.NANOSECONDS.toMillis(endTime - builtTime));
+        logger.info("Loaded " + groups.size() + " groups in " + TimeUnit.NANOSECONDS.toMillis(endTime - startTime) + "ms ("
+                + Joiner.on("ms, ").withKeyValueSeparator(" ").join(phaseTimes) + "ms)");
     }
 }
@@ -17,6 +17,11 @@ public class LocalGroupWorldData extends LocalPermissionEntity {
         this.tempManager = tempManager;
     }
 
+    @Override
+    protected void onPermissionsChanged( ) {
+        group.invalidateUserPermissionSnapshots(worldName);
+    }
+
     @Override
     protected void registerTempPermission(String node, long timeInMillis) {
         tempManager.registerWorldTemporaryPermission(group, worldName, new TemporaryPermissionEntry(node, System.currentTimeMillis() + timeInMillis));
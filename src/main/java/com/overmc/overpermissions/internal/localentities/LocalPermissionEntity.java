@@ -5,6 +5,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.overmc.overpermissions.api.MetadataEntry;
+import com.overmc.overpermissions.api.PermissionState;
 import com.overmc.overpermissions.api.TemporaryPermissionEntry;
 import com.overmc.overpermissions.internal.NodeTree;
 import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
@@ -14,20 +15,16 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public abstract class LocalPermissionEntity {
-    private final ReadWriteLock nodesLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock tempNodesLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock permissionsLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock metaLock = new ReentrantReadWriteLock();
+    private final Object writeLock = new Object(); // Writers are serialized on this, readers never lock.
 
-    private final Set<String> nodes = new HashSet<>();
-    private final Map<String, Boolean> permissions;
-    private final Map<String, String> meta = new HashMap<>();
+    // Every structure is immutable once published, and replaced as a whole on write.
+    private volatile Set<String> nodes = Collections.emptySet();
+    private volatile Map<String, Boolean> permissions;
+    private volatile Map<String, String> meta = Collections.emptyMap();
 
-    private final Set<String> tempNodes = new HashSet<>();
+    private volatile Set<String> tempNodes = Collections.emptySet();
     private final ConcurrentMap<String, TemporaryPermissionEntry> tempEntries = new ConcurrentHashMap<>();
 
     private final PermissionEntityDataSource dataSource;
@@ -38,7 +35,7 @@ public abstract class LocalPermissionEntity {
         if (wildcardSupport) {
             permissions = new NodeTree<>();
         } else {
-            permissions = new HashMap<>();
+            permissions = Collections.emptyMap();
         }
         this.wildcardSupport = wildcardSupport;
         this.dataSource = dataSource;
@@ -48,115 +45,100 @@ public abstract class LocalPermissionEntity {
         return Sets.union(tempNodes, nodes);
     }
 
-    protected Iterable<ReadWriteLock> getAllNodeLocks( ) {
-        return Arrays.asList(nodesLock, tempNodesLock);
-    }
-
     protected void recalculatePermission(String node) {
-        String baseNode = PermissionUtils.getBaseNode(node);
-        permissionsLock.writeLock().lock();
-        for (ReadWriteLock l : getAllNodeLocks()) { // TODO this is pretty ugly, just make readonly collections
-            l.readLock().lock();
-        }
-        try {
-            permissions.put(baseNode, PermissionUtils.getPermissionValue(node, baseNode, getAllNodes()));
-        } finally {
-            for (ReadWriteLock l : getAllNodeLocks()) {
-                l.readLock().unlock();
-            }
-            permissionsLock.writeLock().unlock();
-        }
+        recalculatePermissions(Collections.singleton(node));
     }
 
     protected void recalculatePermissions(Iterable<String> nodes) {
-        permissionsLock.writeLock().lock();
-        for (ReadWriteLock l : getAllNodeLocks()) {
-            l.readLock().lock();
-        }
-        try {
+        synchronized (writeLock) {
+            Map<String, Boolean> newPermissions = wildcardSupport ? new NodeTree<>((NodeTree<Boolean>) permissions) : new HashMap<>(permissions);
+            Set<String> allNodes = getAllNodes();
             for (String node : nodes) {
+                node = node.toLowerCase();
                 String baseNode = PermissionUtils.getBaseNode(node);
-                permissions.put(baseNode, PermissionUtils.getPermissionValue(node, baseNode, getAllNodes()));
-            }
-        } finally {
-            permissionsLock.writeLock().unlock();
-            for (ReadWriteLock l : getAllNodeLocks()) {
-                l.readLock().unlock();
+                if (allNodes.contains(baseNode) || allNodes.contains("+" + baseNode) || allNodes.contains("-" + baseNode)) {
+                    newPermissions.put(baseNode, PermissionUtils.getPermissionValue(node, baseNode, allNodes));
+                } else {
+                    newPermissions.remove(baseNode); // Nothing sets this permission anymore.
+                }
             }
+            permissions = newPermissions;
         }
+        onPermissionsChanged();
     }
 
     protected void recalculatePermissions( ) {
-        permissionsLock.writeLock().lock();
-        for (ReadWriteLock l : getAllNodeLocks()) {
-            l.readLock().lock();
-        }
-        try {
-            for (String node : nodes) {
-                String baseNode = PermissionUtils.getBaseNode(node);
-                permissions.put(baseNode, PermissionUtils.getPermissionValue(node, baseNode, getAllNodes()));
-            }
-        } finally {
-            permissionsLock.writeLock().unlock();
-            for (ReadWriteLock l : getAllNodeLocks()) {
-                l.readLock().unlock();
+        synchronized (writeLock) {
+            Map<String, Boolean> newPermissions = PermissionUtils.getPermissionValues(getAllNodes());
+            if (wildcardSupport) {
+                NodeTree<Boolean> tree = new NodeTree<>();
+                for (Map.Entry<String, Boolean> entry : newPermissions.entrySet()) {
+                    tree.put(entry.getKey(), entry.getValue());
+                }
+                newPermissions = tree;
             }
+            permissions = newPermissions;
         }
+        onPermissionsChanged();
     }
 
     public void reloadPermissions( ) {
-        nodesLock.writeLock().lock();
-        tempNodesLock.writeLock().lock();
-        try {
-            nodes.clear();
-            tempNodes.clear();
-            for (String node : dataSource.getPermissions()) {
-                nodes.add(node.toLowerCase());
-            }
-            for (TemporaryPermissionEntry e : dataSource.getTempPermissions()) {
-                tempNodes.add(e.getNode().toLowerCase());
-            }
-        } finally {
-            nodesLock.writeLock().unlock();
-            tempNodesLock.writeLock().unlock();
+        loadPermissions(dataSource.getPermissions(), dataSource.getTempPermissions());
+    }
+
+    /**
+     * Replace this entity's nodes with already loaded ones, without reading them from its data source.
+     */
+    public void loadPermissions(Collection<String> permissionNodes, Collection<TemporaryPermissionEntry> tempPermissions) {
+        Set<String> newNodes = new HashSet<>();
+        Set<String> newTempNodes = new HashSet<>();
+        for (String node : permissionNodes) {
+            newNodes.add(node.toLowerCase());
+        }
+        for (TemporaryPermissionEntry e : tempPermissions) {
+            newTempNodes.add(e.getNode().toLowerCase());
+        }
+        synchronized (writeLock) {
+            nodes = Collections.unmodifiableSet(newNodes);
+            tempNodes = Collections.unmodifiableSet(newTempNodes);
         }
     }
 
     public void reloadMetadata( ) {
-        metaLock.writeLock().lock();
-        try {
-            meta.clear();
-            meta.putAll(dataSource.getMetadata());
-        } finally {
-            metaLock.writeLock().unlock();
+        loadMetadata(dataSource.getMetadata());
+    }
+
+    /**
+     * Replace this entity's metadata with already loaded metadata, without reading it from its data source.
+     */
+    public void loadMetadata(Map<String, String> metadata) {
+        Map<String, String> newMeta = new HashMap<>(metadata);
+        synchronized (writeLock) {
+            meta = Collections.unmodifiableMap(newMeta);
         }
     }
 
-    protected boolean hasInternalPermission(String permission) {
-        permissionsLock.readLock().lock();
-        try {
-            return permissions.containsKey(permission.toLowerCase());
-        } finally {
-            permissionsLock.readLock().unlock();
+    protected PermissionState getInternalPermissionState(String permission) {
+        if (wildcardSupport) {
+            return PermissionState.fromValue(permissions.get(permission)); // Node trees fold case while they walk the node.
         }
+        return PermissionState.fromValue(permissions.get(permission.toLowerCase()));
+    }
+
+    protected boolean hasInternalPermission(String permission) {
+        return getInternalPermissionState(permission).isSet();
     }
 
     protected boolean getInternalPermission(String permission) {
-        permissionsLock.readLock().lock();
-        try {
-            return permissions.get(permission.toLowerCase());
-        } finally {
-            permissionsLock.readLock().unlock();
-        }
+        return getInternalPermissionState(permission).getValue();
     }
 
     protected boolean addInternalPermissionNode(String permissionNode) {
-        nodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = nodes.add(permissionNode.toLowerCase());
-        } finally {
-            nodesLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Set<String> newNodes = new HashSet<>(nodes);
+            success = newNodes.add(permissionNode.toLowerCase());
+            nodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             dataSource.addPermission(permissionNode);
@@ -166,16 +148,15 @@ public abstract class LocalPermissionEntity {
     }
 
     protected boolean addInternalPermissionNodes(Collection<String> permissions) {
-        nodesLock.writeLock().lock();
         boolean success = false;
-        try {
+        synchronized (writeLock) {
+            Set<String> newNodes = new HashSet<>(nodes);
             for (String node : permissions) {
-                if (nodes.add(node.toLowerCase())) {
+                if (newNodes.add(node.toLowerCase())) {
                     success = true;
                 }
             }
-        } finally {
-            nodesLock.writeLock().unlock();
+            nodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             dataSource.addPermissions(permissions);
@@ -185,12 +166,11 @@ public abstract class LocalPermissionEntity {
     }
 
     protected boolean removeInternalPermissionNode(String permission) {
-        nodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = nodes.remove(permission.toLowerCase());
-        } finally {
-            nodesLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Set<String> newNodes = new HashSet<>(nodes);
+            success = newNodes.remove(permission.toLowerCase());
+            nodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             dataSource.removePermission(permission);
@@ -200,16 +180,15 @@ public abstract class LocalPermissionEntity {
     }
 
     protected boolean removeInternalPermissionNodes(Collection<String> permissions) {
-        nodesLock.writeLock().lock();
         boolean success = false;
-        try {
+        synchronized (writeLock) {
+            Set<String> newNodes = new HashSet<>(nodes);
             for (String node : permissions) {
-                if (nodes.remove(node.toLowerCase())) {
+                if (newNodes.remove(node.toLowerCase())) {
                     success = true;
                 }
             }
-        } finally {
-            nodesLock.writeLock().unlock();
+            nodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             dataSource.removePermissions(permissions);
@@ -219,50 +198,28 @@ public abstract class LocalPermissionEntity {
     }
 
     protected boolean hasInternalPermissionNode(String permissionNode) {
-        nodesLock.readLock().lock();
-        try {
-            return nodes.contains(permissionNode.toLowerCase());
-        } finally {
-            nodesLock.readLock().unlock();
-        }
+        return nodes.contains(permissionNode.toLowerCase());
     }
 
     protected Collection<String> getInternalPermissionNodes( ) {
-        nodesLock.readLock().lock();
-        try {
-            return new ArrayList<>(nodes);
-        } finally {
-            nodesLock.readLock().unlock();
-        }
+        return new ArrayList<>(nodes);
     }
 
     protected Map<String, Boolean> getInternalPermissionValues( ) {
-        permissionsLock.readLock().lock();
-        try {
-            return Maps.newHashMap(permissions);
-        } finally {
-            permissionsLock.readLock().unlock();
-        }
+        return Maps.newHashMap(permissions);
     }
 
     protected boolean hasInternalTempPermissionNode(String permissionNode) {
-        permissionNode = permissionNode.toLowerCase();
-        tempNodesLock.readLock().lock();
-        try {
-            return tempNodes.contains(permissionNode);
-        } finally {
-            tempNodesLock.readLock().unlock();
-        }
+        return tempNodes.contains(permissionNode.toLowerCase());
     }
 
     protected boolean addInternalTempPermissionNode(String permission, long time, TimeUnit unit) {
         long timeInMillis = unit.toMillis(time);
-        tempNodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = tempNodes.add(permission.toLowerCase());
-        } finally {
-            tempNodesLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Set<String> newTempNodes = new HashSet<>(tempNodes);
+            success = newTempNodes.add(permission.toLowerCase());
+            tempNodes = Collections.unmodifiableSet(newTempNodes);
         }
         tempEntries.put(permission, new TemporaryPermissionEntry(permission, System.currentTimeMillis() + timeInMillis));
         if (success) {
@@ -275,17 +232,16 @@ public abstract class LocalPermissionEntity {
 
     protected boolean addInternalTempPermissionNodes(Collection<TemporaryPermissionEntry> permissions) {
         ArrayList<TemporaryPermissionEntry> changedEntries = new ArrayList<>(permissions.size());
-        tempNodesLock.writeLock().lock();
         boolean success = false;
-        try {
+        synchronized (writeLock) {
+            Set<String> newTempNodes = new HashSet<>(tempNodes);
             for (TemporaryPermissionEntry entry : permissions) {
-                if (tempNodes.add(entry.getNode().toLowerCase())) {
+                if (newTempNodes.add(entry.getNode().toLowerCase())) {
                     success = true;
                     changedEntries.add(entry);
                 }
             }
-        } finally {
-            tempNodesLock.writeLock().unlock();
+            tempNodes = Collections.unmodifiableSet(newTempNodes);
         }
         if (success) {
             dataSource.addTempPermissions(permissions);
@@ -296,7 +252,7 @@ public abstract class LocalPermissionEntity {
                 }
             }));
             for (TemporaryPermissionEntry e : changedEntries) {
-                registerTempPermission(e.getNode(), e.getExpirationTime());
+                registerTempPermission(e.getNode(), e.getExpirationTime() - System.currentTimeMillis());
             }
         }
         for (TemporaryPermissionEntry entry : permissions) {
@@ -307,12 +263,11 @@ public abstract class LocalPermissionEntity {
 
     protected boolean removeInternalTempPermissionNode(String permission) {
         permission = permission.toLowerCase();
-        tempNodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = tempNodes.remove(permission);
-        } finally {
-            tempNodesLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Set<String> newTempNodes = new HashSet<>(tempNodes);
+            success = newTempNodes.remove(permission);
+            tempNodes = Collections.unmodifiableSet(newTempNodes);
         }
         if (success) {
             dataSource.removeTempPermission(permission);
@@ -325,17 +280,16 @@ public abstract class LocalPermissionEntity {
 
     protected boolean removeInternalTempPermissionNodes(Collection<TemporaryPermissionEntry> permissions) {
         ArrayList<TemporaryPermissionEntry> changedNodes = new ArrayList<>(permissions.size());
-        tempNodesLock.writeLock().lock();
         boolean success = false;
-        try {
+        synchronized (writeLock) {
+            Set<String> newTempNodes = new HashSet<>(tempNodes);
             for (TemporaryPermissionEntry entry : permissions) {
-                if (tempNodes.remove(entry.getNode().toLowerCase())) {
+                if (newTempNodes.remove(entry.getNode().toLowerCase())) {
                     success = true;
                     changedNodes.add(entry);
                 }
             }
-        } finally {
-            tempNodesLock.writeLock().unlock();
+            tempNodes = Collections.unmodifiableSet(newTempNodes);
         }
         if (success) {
             dataSource.removeTempPermissions(permissions);
@@ -356,12 +310,7 @@ public abstract class LocalPermissionEntity {
     }
 
     protected Collection<String> getInternalTempPermissionNodes( ) {
-        tempNodesLock.readLock().lock();
-        try {
-            return new ArrayList<>(tempNodes); // Defensive copy
-        } finally {
-            tempNodesLock.readLock().unlock();
-        }
+        return new ArrayList<>(tempNodes); // Defensive copy
     }
 
     protected Collection<TemporaryPermissionEntry> getInternalTempPermissionEntries( ) {
@@ -369,52 +318,39 @@ public abstract class LocalPermissionEntity {
     }
 
     protected String getInternalMeta(String key) {
-        metaLock.readLock().lock();
-        try {
-            return meta.get(key);
-        } finally {
-            metaLock.readLock().unlock();
-        }
+        return meta.get(key);
     }
 
     protected boolean hasInternalMeta(String key) {
-        metaLock.readLock().lock();
-        try {
-            return meta.containsKey(key);
-        } finally {
-            metaLock.readLock().unlock();
-        }
+        return meta.containsKey(key);
     }
 
     protected void setInternalMeta(String key, String value) {
-        metaLock.writeLock().lock();
-        try {
-            meta.put(key, value);
-        } finally {
-            metaLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Map<String, String> newMeta = new HashMap<>(meta);
+            newMeta.put(key, value);
+            meta = Collections.unmodifiableMap(newMeta);
         }
         dataSource.setMeta(key, value);
     }
 
     protected void setInternalMetaEntries(Iterable<MetadataEntry> entries) {
-        metaLock.writeLock().lock();
-        try {
+        synchronized (writeLock) {
+            Map<String, String> newMeta = new HashMap<>(meta);
             for (MetadataEntry e : entries) {
-                meta.put(e.getKey().toLowerCase(), e.getValue());
+                newMeta.put(e.getKey().toLowerCase(), e.getValue());
             }
-        } finally {
-            metaLock.writeLock().unlock();
+            meta = Collections.unmodifiableMap(newMeta);
         }
         dataSource.setMetaEntries(entries);
     }
 
     protected boolean removeInternalMeta(String key) {
         boolean success;
-        metaLock.writeLock().lock();
-        try {
-            success = meta.remove(key) != null;
-        } finally {
-            metaLock.writeLock().unlock();
+        synchronized (writeLock) {
+            Map<String, String> newMeta = new HashMap<>(meta);
+            success = newMeta.remove(key) != null;
+            meta = Collections.unmodifiableMap(newMeta);
         }
         if (success) {
             dataSource.removeMeta(key);
@@ -424,25 +360,25 @@ public abstract class LocalPermissionEntity {
 
     protected void addInternalMetaEntries(Collection<MetadataEntry> entries) {
         ArrayList<MetadataEntry> changedMeta = new ArrayList<>(entries.size());
-        metaLock.writeLock().lock();
-        try {
+        synchronized (writeLock) {
+            Map<String, String> newMeta = new HashMap<>(meta);
             for (MetadataEntry e : entries) {
                 if (e.getValue() == null) {
-                    if (meta.remove(e.getKey().toLowerCase()) != null) {
+                    if (newMeta.remove(e.getKey().toLowerCase()) != null) {
                         changedMeta.add(e);
                     }
                 } else {
-                    meta.put(e.getKey().toLowerCase(), e.getValue());
+                    newMeta.put(e.getKey().toLowerCase(), e.getValue());
                     changedMeta.add(e);
                 }
             }
-        } finally {
-            metaLock.writeLock().unlock();
+            meta = Collections.unmodifiableMap(newMeta);
         }
         dataSource.setMetaEntries(changedMeta);
     }
 
     protected Collection<MetadataEntry> getInternalMetadataEntries( ) {
+        Map<String, String> meta = this.meta;
         ArrayList<MetadataEntry> ret = new ArrayList<>(meta.size());
         for (Map.Entry<String, String> e : meta.entrySet()) {
             ret.add(new MetadataEntry(e.getKey(), e.getValue()));
@@ -454,6 +390,12 @@ public abstract class LocalPermissionEntity {
         return wildcardSupport;
     }
 
+    /**
+     * Called after this entity's computed permission values have changed, outside of any of its locks.
+     */
+    protected void onPermissionsChanged( ) {
+    }
+
     protected abstract void registerTempPermission(String node, long timeInMillis);
 
     protected abstract void cancelTempPermission(String node);
@@ -1,10 +1,7 @@
 package com.overmc.overpermissions.internal.localentities;
 
 import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
 
@@ -12,11 +9,9 @@ import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSourc
  * a {@link LocalPermissionEntity} with transient node support.
  */
 public abstract class LocalTransientPermissionEntity extends LocalPermissionEntity {
-    // Transient data.
-    private final Set<String> transientNodes = new HashSet<>();
-
-    // Concurrency locks
-    private final ReadWriteLock transientNodesLock = new ReentrantReadWriteLock();
+    // Transient data, replaced as a whole on write.
+    private volatile Set<String> transientNodes = Collections.emptySet();
+    private final Object transientWriteLock = new Object();
 
     public LocalTransientPermissionEntity(PermissionEntityDataSource dataSource, boolean wildcardSupport) {
         super(dataSource, wildcardSupport);
@@ -27,18 +22,12 @@ public abstract class LocalTransientPermissionEntity extends LocalPermissionEnti
         return Sets.union(super.getAllNodes(), transientNodes);
     }
 
-    @Override
-    protected Iterable<ReadWriteLock> getAllNodeLocks( ) {
-        return Iterables.concat(super.getAllNodeLocks(), Arrays.asList(transientNodesLock));
-    }
-
     protected boolean addInternalTransientPermissionNode(String permissionNode) {
-        transientNodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = transientNodes.add(permissionNode.toLowerCase());
-        } finally {
-            transientNodesLock.writeLock().unlock();
+        synchronized (transientWriteLock) {
+            Set<String> newNodes = new HashSet<>(transientNodes);
+            success = newNodes.add(permissionNode.toLowerCase());
+            transientNodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             recalculatePermission(permissionNode);
@@ -47,12 +36,15 @@ public abstract class LocalTransientPermissionEntity extends LocalPermissionEnti
     }
 
     protected boolean addInternalTransientPermissions(Collection<String> permissions) {
-        transientNodesLock.writeLock().lock();
         boolean success = false;
-        try {
-            success = transientNodes.addAll(permissions);
-        } finally {
-            transientNodesLock.writeLock().unlock();
+        synchronized (transientWriteLock) {
+            Set<String> newNodes = new HashSet<>(transientNodes);
+            for (String node : permissions) {
+                if (newNodes.add(node.toLowerCase())) {
+                    success = true;
+                }
+            }
+            transientNodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             recalculatePermissions(permissions);
@@ -61,12 +53,11 @@ public abstract class LocalTransientPermissionEntity extends LocalPermissionEnti
     }
 
     protected boolean removeInternalTransientPermissionNode(String permissionNode) {
-        transientNodesLock.writeLock().lock();
         boolean success;
-        try {
-            success = transientNodes.remove(permissionNode.toLowerCase());
-        } finally {
-            transientNodesLock.writeLock().unlock();
+        synchronized (transientWriteLock) {
+            Set<String> newNodes = new HashSet<>(transientNodes);
+            success = newNodes.remove(permissionNode.toLowerCase());
+            transientNodes = Collections.unmodifiableSet(newNodes);
         }
         if (success) {
             recalculatePermission(permissionNode);
@@ -75,20 +66,10 @@ public abstract class LocalTransientPermissionEntity extends LocalPermissionEnti
     }
 
     protected boolean hasInternalTransientPermissionNode(String permissionNode) {
-        transientNodesLock.readLock().lock();
-        try {
-            return transientNodes.contains(permissionNode.toLowerCase());
-        } finally {
-            transientNodesLock.readLock().unlock();
-        }
+        return transientNodes.contains(permissionNode.toLowerCase());
     }
 
     protected Collection<String> getInternalTransientNodes( ) {
-        transientNodesLock.readLock().lock();
-        try {
-            return new ArrayList<>(transientNodes);
-        } finally {
-            transientNodesLock.readLock().unlock();
-        }
+        return new ArrayList<>(transientNodes);
     }
 }
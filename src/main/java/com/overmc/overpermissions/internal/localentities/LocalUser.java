@@ -1,9 +1,14 @@
 package com.overmc.overpermissions.internal.localentities;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.overmc.overpermissions.api.*;
 import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityData;
+import com.overmc.overpermissions.internal.datasources.UserData;
 import com.overmc.overpermissions.internal.datasources.UserDataSource;
 import org.bukkit.permissions.Permission;
 import org.bukkit.plugin.Plugin;
@@ -12,7 +17,10 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * By definition, PermissionUsers should be treated like Bukkit's Player objects, and only names or weak references should be stored.
@@ -25,21 +33,37 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
     private final TemporaryPermissionManager tempManager;
 
     private final CopyOnWriteArrayList<PermissionGroup> parents = new CopyOnWriteArrayList<>(); // These are fast for iteration, but fairly slow for modification.
-    private final CopyOnWriteArrayList<PermissionGroup> allParents = new CopyOnWriteArrayList<>(); // ^
+    private volatile ImmutableList<PermissionGroup> allParents = ImmutableList.of(); // Sorted by priority, replaced whenever the parents change.
 
     // World specific data
     private final ConcurrentMap<String, LocalUserWorldData> worldDataMap = new ConcurrentHashMap<>();
+    private volatile boolean detached; // Set once this user has been dropped by its manager, and won't be kept up to date anymore.
+    private volatile boolean allWorldsLoaded; // Set once every world with stored data has been loaded, so missing worlds are known to be empty.
+
+    // Compiled permission snapshots, keyed by lowercase world name
+    private final Executor snapshotExecutor;
+    private final ConcurrentMap<String, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<String> pendingSnapshots = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger snapshotClock = new AtomicInteger(); // Snapshots are stamped with this before they read any data.
+    private final AtomicInteger snapshotsInvalidatedAt = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> worldSnapshotsInvalidatedAt = new ConcurrentHashMap<>();
 
     public LocalUser(UUID uniqueId, Plugin plugin, TemporaryPermissionManager tempManager, UserDataSource userDataSource, boolean wildcardSupport) {
+        this(uniqueId, plugin, tempManager, userDataSource, MoreExecutors.sameThreadExecutor(), wildcardSupport);
+    }
+
+    public LocalUser(UUID uniqueId, Plugin plugin, TemporaryPermissionManager tempManager, UserDataSource userDataSource, Executor snapshotExecutor, boolean wildcardSupport) {
         super(userDataSource, wildcardSupport);
         Preconditions.checkNotNull(uniqueId, "unique id");
         Preconditions.checkNotNull(plugin, "plugin");
         Preconditions.checkNotNull(tempManager, "temp manager");
         Preconditions.checkNotNull(userDataSource, "user data source");
+        Preconditions.checkNotNull(snapshotExecutor, "snapshot executor");
         this.uniqueId = uniqueId;
         this.plugin = plugin;
         this.userDataSource = userDataSource;
         this.tempManager = tempManager;
+        this.snapshotExecutor = snapshotExecutor;
     }
 
     // Utility method(s)
@@ -58,18 +82,39 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
         LocalUserWorldData world = worldDataMap.get(worldName);
         if (world == null) {
             world = new LocalUserWorldData(this, worldName, tempManager, userDataSource.createWorldDataSource(worldName));
-            world.reloadMetadata();
-            world.reloadPermissions();
-            world.recalculatePermissions();
+            if (!allWorldsLoaded) {
+                world.reloadMetadata();
+                world.reloadPermissions();
+                world.recalculatePermissions();
+            }
             worldDataMap.put(worldName, world);
+            invalidatePermissionSnapshot(worldName); // The snapshot was compiled without this world's data.
         }
         return world;
     }
 
+    /**
+     * @return whether this user has been dropped by its manager, if so it won't receive changes to its groups anymore and should be fetched again.
+     */
+    public boolean isDetached( ) {
+        return detached;
+    }
+
+    void markDetached( ) {
+        detached = true;
+    }
+
     public void reloadParents(GroupManager groupManager) {
+        loadParents(groupManager, userDataSource.getParents());
+    }
+
+    /**
+     * Replace this user's parents with the groups by the given names.
+     */
+    public void loadParents(GroupManager groupManager, Collection<String> parentNames) {
         Preconditions.checkNotNull(groupManager, "group manager");
         parents.clear();
-        for (String groupName : userDataSource.getParents()) {
+        for (String groupName : parentNames) {
             PermissionGroup group = groupManager.getGroup(groupName);
             if (group == null) {
                 throw new RuntimeException("Invalid parent defined for player " + getUniqueId() + ": " + groupName);
@@ -79,25 +124,160 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
         recalculateParentData();
     }
 
-    public void recalculateParentData( ) {
-        allParents.clear();
-        for (PermissionGroup group : parents) {
-            allParents.addIfAbsent(group);
-            allParents.addAllAbsent(group.getAllParents());
+    /**
+     * Load all of this user's data, global and per world, from already read data instead of its data source.<br>
+     * Worlds that aren't part of the data are known to be empty afterwards, and won't be read from the data source either.
+     */
+    public void loadData(UserData data, GroupManager groupManager) {
+        Preconditions.checkNotNull(data, "data");
+        loadMetadata(data.getMetadata());
+        loadPermissions(data.getPermissions(), data.getTempPermissions());
+        recalculatePermissions();
+        for (Map.Entry<String, PermissionEntityData> entry : data.getWorlds().entrySet()) {
+            String worldName = entry.getKey();
+            PermissionEntityData worldData = entry.getValue();
+            LocalUserWorldData world = new LocalUserWorldData(this, worldName, tempManager, userDataSource.createWorldDataSource(worldName));
+            world.loadMetadata(worldData.getMetadata());
+            world.loadPermissions(worldData.getPermissions(), worldData.getTempPermissions());
+            world.recalculatePermissions();
+            worldDataMap.put(worldName, world);
         }
+        allWorldsLoaded = true;
+        loadParents(groupManager, data.getParents());
+    }
 
+    public void recalculateParentData( ) {
         PermissionGroup[] tempSortArray;
         tempSortArray = parents.toArray(new PermissionGroup[parents.size()]);
         Arrays.sort(tempSortArray);
         parents.clear();
         parents.addAll(Arrays.asList(tempSortArray));
 
-        tempSortArray = allParents.toArray(new PermissionGroup[allParents.size()]);
-        Arrays.sort(tempSortArray);
-        allParents.clear();
-        allParents.addAll(Arrays.asList(tempSortArray));
+        if ((tempSortArray.length == 1) && (tempSortArray[0] instanceof LocalGroup)) {
+            allParents = ((LocalGroup) tempSortArray[0]).getLineage(); // Shared with every other user in only this group.
+        } else {
+            Set<PermissionGroup> merged = new LinkedHashSet<>();
+            for (PermissionGroup group : tempSortArray) {
+                if (group instanceof LocalGroup) {
+                    merged.addAll(((LocalGroup) group).getLineage());
+                } else {
+                    merged.add(group);
+                    merged.addAll(group.getAllParents());
+                }
+            }
+            tempSortArray = merged.toArray(new PermissionGroup[merged.size()]);
+            Arrays.sort(tempSortArray);
+            allParents = ImmutableList.copyOf(tempSortArray);
+        }
+
+        invalidatePermissionSnapshots(); // This user's own permissions don't depend on its parents, only the merged view does.
+    }
+
+    /**
+     * Discards every compiled permission snapshot of this user, and schedules the ones that were in use to be rebuilt.<br>
+     * Until a snapshot is rebuilt, permission checks in its world fall back to walking every layer of permissions.
+     */
+    public void invalidatePermissionSnapshots( ) {
+        raiseTo(snapshotsInvalidatedAt, snapshotClock.incrementAndGet());
+        for (String worldName : snapshots.keySet()) {
+            schedulePermissionSnapshot(worldName);
+        }
+    }
+
+    /**
+     * Discards the compiled permission snapshot of a single world, leaving the snapshots of other worlds intact.
+     */
+    public void invalidatePermissionSnapshot(String worldName) {
+        Preconditions.checkNotNull(worldName, "world name");
+        worldName = worldName.toLowerCase();
+        AtomicInteger invalidatedAt = worldSnapshotsInvalidatedAt.get(worldName);
+        if (invalidatedAt == null) {
+            AtomicInteger existing = worldSnapshotsInvalidatedAt.putIfAbsent(worldName, invalidatedAt = new AtomicInteger());
+            if (existing != null) {
+                invalidatedAt = existing;
+            }
+        }
+        raiseTo(invalidatedAt, snapshotClock.incrementAndGet());
+        if (snapshots.containsKey(worldName)) {
+            schedulePermissionSnapshot(worldName);
+        }
+    }
+
+    /**
+     * Make sure a current permission snapshot exists for a world, compiling one in the background if it doesn't.<br>
+     * This is cheap when the snapshot is already current, so it can be called whenever a player enters a world.
+     */
+    public void preparePermissionSnapshot(String worldName) {
+        Preconditions.checkNotNull(worldName, "world name");
+        getPermissionSnapshot(worldName.toLowerCase());
+    }
+
+    private static void raiseTo(AtomicInteger value, int newValue) {
+        int current;
+        while ((current = value.get()) < newValue) {
+            if (value.compareAndSet(current, newValue)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isCurrent(PermissionSnapshot snapshot, String worldName) {
+        if (snapshot.getVersion() < snapshotsInvalidatedAt.get()) {
+            return false;
+        }
+        AtomicInteger worldInvalidatedAt = worldSnapshotsInvalidatedAt.get(worldName);
+        return (worldInvalidatedAt == null) || (snapshot.getVersion() >= worldInvalidatedAt.get());
+    }
+
+    private PermissionSnapshot getPermissionSnapshot(String worldName) {
+        PermissionSnapshot snapshot = snapshots.get(worldName);
+        if ((snapshot != null) && isCurrent(snapshot, worldName)) {
+            return snapshot;
+        }
+        schedulePermissionSnapshot(worldName);
+        return null;
+    }
+
+    private void schedulePermissionSnapshot(final String worldName) {
+        if (!pendingSnapshots.add(worldName)) {
+            return; // Already queued, it'll read the newest data when it runs.
+        }
+        try {
+            snapshotExecutor.execute(new Runnable() {
+                @Override
+                public void run( ) {
+                    pendingSnapshots.remove(worldName);
+                    PermissionSnapshot snapshot = compilePermissionSnapshot(worldName, snapshotClock.get());
+                    if (isCurrent(snapshot, worldName)) {
+                        snapshots.put(worldName, snapshot);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingSnapshots.remove(worldName); // Shutting down, keep using the slow path.
+        }
+    }
+
+    private PermissionSnapshot compilePermissionSnapshot(String worldName, int version) { // Layers go from the lowest to the highest priority.
+        List<PermissionGroup> parentsByPriority = allParents.reverse();
+        List<Map<String, Boolean>> layers = new ArrayList<>(parentsByPriority.size() * 2 + 2);
+        for (PermissionGroup parent : parentsByPriority) {
+            layers.add(parent.getGlobalPermissionValues());
+        }
+        for (PermissionGroup parent : parentsByPriority) {
+            layers.add(parent.getPermissionValues(worldName));
+        }
+        layers.add(getInternalPermissionValues());
+        LocalUserWorldData world = getWorldData(worldName);
+        if (world != null) {
+            layers.add(world.getInternalPermissionValues());
+        }
+        return PermissionSnapshot.compile(layers, areWildcardsSupported(), version);
+    }
 
-        recalculatePermissions(); // Recalculate with new parents
+    @Override
+    protected void onPermissionsChanged( ) {
+        invalidatePermissionSnapshots();
     }
 
     @Override
@@ -123,81 +303,75 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
     }
 
     @Override
-    public boolean hasGlobalPermission(String permission) {
-        Preconditions.checkNotNull(permission, "permission");
-        if (hasInternalPermission(permission)) {
-            return getInternalPermission(permission);
-        }
-        for (PermissionGroup parent : allParents) {
-            if (parent.hasGlobalPermission(permission)) {
-                return parent.getGlobalPermission(permission);
-            }
-        }
-        return false;
+    public boolean hasGlobalPermission(String permission) { // A user has a permission when it resolves to true.
+        return getGlobalPermissionState(permission).getValue();
     }
 
     @Override
-    public boolean hasPermission(String permission, String worldName) {
-        Preconditions.checkNotNull(permission, "permission");
-        Preconditions.checkNotNull(worldName, "world name");
-        if (hasInternalPermission(permission)) { // Global player permission
-            return getInternalPermission(permission);
-        }
-        LocalUserWorldData world = getWorldData(worldName);
-        if (world != null) {
-            if (world.hasInternalPermission(permission)) { // World player permission
-                return world.getInternalPermission(permission);
-            }
-        }
-        for (PermissionGroup parent : allParents) {
-            if (parent.hasGlobalPermission(permission)) { // Global group permission
-                return parent.getGlobalPermission(permission);
-            }
-            if (parent.hasPermission(permission, worldName)) { // World group permission
-                return parent.getPermission(permission, worldName);
-            }
-        }
-        return false;
+    public boolean hasPermission(String permission, String worldName) { // ^
+        return getPermissionState(permission, worldName).getValue();
     }
 
     @Override
     public boolean getGlobalPermission(String permission) {
+        return getGlobalPermissionState(permission).getValue();
+    }
+
+    @Override
+    public boolean getPermission(String permission, String worldName) {
+        return getPermissionState(permission, worldName).getValue();
+    }
+
+    @Override
+    public PermissionState getGlobalPermissionState(String permission) {
         Preconditions.checkNotNull(permission, "permission");
-        if (hasInternalPermission(permission)) {
-            return getInternalPermission(permission);
+        PermissionState state = getInternalPermissionState(permission);
+        if (state.isSet()) {
+            return state;
         }
         for (PermissionGroup parent : allParents) {
-            if (parent.hasGlobalPermission(permission)) {
-                return parent.getGlobalPermission(permission);
+            state = parent.getGlobalPermissionState(permission);
+            if (state.isSet()) {
+                return state;
             }
         }
-        return false;
+        return PermissionState.UNSET;
     }
 
     @Override
-    public boolean getPermission(String permission, String worldName) {
+    public PermissionState getPermissionState(String permission, String worldName) { // Priority is group global < group world < user global < user world
         Preconditions.checkNotNull(permission, "permission");
         Preconditions.checkNotNull(worldName, "world name");
-        LocalUserWorldData world = worldDataMap.get(worldName);
+        worldName = worldName.toLowerCase();
+        PermissionSnapshot snapshot = getPermissionSnapshot(worldName);
+        if (snapshot != null) {
+            return snapshot.get(permission);
+        }
+        PermissionState state;
+        LocalUserWorldData world = getWorldData(worldName);
         if (world != null) { // Player world permission
-            if (world.hasInternalPermission(permission)) {
-                return world.getInternalPermission(permission);
+            state = world.getInternalPermissionState(permission);
+            if (state.isSet()) {
+                return state;
             }
         }
-        if (hasGlobalPermission(permission)) { // Player global permission
-            return getInternalPermission(permission);
+        state = getInternalPermissionState(permission);
+        if (state.isSet()) { // Player global permission
+            return state;
         }
-        for (PermissionGroup parent : allParents) {
-            if (parent.hasPermission(permission, worldName)) { // Group world permission
-                return parent.getPermission(permission, worldName);
+        for (PermissionGroup parent : allParents) { // Group world permission
+            state = parent.getPermissionState(permission, worldName);
+            if (state.isSet()) {
+                return state;
             }
         }
         for (PermissionGroup parent : allParents) { // Group global permission
-            if (parent.hasGlobalPermission(permission)) {
-                return parent.getGlobalPermission(permission);
+            state = parent.getGlobalPermissionState(permission);
+            if (state.isSet()) {
+                return state;
             }
         }
-        return false;
+        return PermissionState.UNSET;
     }
 
     @Override
@@ -528,7 +702,7 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
         for (String worldName : nodes.getWorldNodes().keySet()) {
             LocalUserWorldData world = getWorldData(worldName);
             if (world != null) {
-                if (world.addInternalTempPermissionNodes(nodes.getWorldNodes().get(worldName))) {
+                if (world.removeInternalTempPermissionNodes(nodes.getWorldNodes().get(worldName))) {
                     success = true;
                 }
             }
@@ -613,7 +787,7 @@ public class LocalUser extends LocalTransientPermissionEntity implements Permiss
 
     @Override
     public Set<PermissionGroup> getAllParents( ) {
-        return Sets.newTreeSet(allParents); // Defensive copy, tree sets are ordered, which is mandated for this method.
+        return ImmutableSet.copyOf(allParents); // Immutable and ordered by priority, which is mandated for this method.
     }
 
     @Override
@@ -9,6 +9,7 @@ import com.overmc.overpermissions.exceptions.InvalidOnlineUsernameException;
 import com.overmc.overpermissions.exceptions.InvalidUsernameException;
 import com.overmc.overpermissions.internal.TemporaryPermissionManager;
 import com.overmc.overpermissions.internal.datasources.UUIDHandler;
+import com.overmc.overpermissions.internal.datasources.UserData;
 import com.overmc.overpermissions.internal.datasources.UserDataSource;
 import com.overmc.overpermissions.internal.datasources.UserDataSourceFactory;
 import org.bukkit.Bukkit;
@@ -17,6 +18,13 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -42,27 +50,28 @@ public class LocalUserManager implements UserManager {
                 @Override
                 public void onRemoval(RemovalNotification<UUID, LocalUser> notification) {
                     LocalUser user = notification.getValue();
-                    for (PermissionGroup g : user.getParents()) {
-                        if (g instanceof LocalGroup) {
-                            ((LocalGroup) g).removeUserFromGroup(user); // No one should have references of this user here anymore.
-                        }
+                    if ((user != null) && (onlineUsers.get(notification.getKey()) != user)) { // Online users stay attached until they quit.
+                        detachUser(user);
                     }
                 }
             })
             .build(new CacheLoader<UUID, LocalUser>() {
                 @Override
                 public LocalUser load(UUID uuid) throws Exception {
-                    LocalUser user = new LocalUser(uuid, plugin, tempManager, dataSourceCache.getUnchecked(uuid), wildcardSupport);
-                    user.recalculateParentData();
-                    user.reloadMetadata();
-                    user.reloadPermissions();
-                    user.recalculatePermissions();
-                    user.reloadParents(groupManager);
+                    LocalUser onlineUser = onlineUsers.get(uuid);
+                    if (onlineUser != null) { // Evicted while online, there must never be two users for the same player.
+                        return onlineUser;
+                    }
+                    UserDataSource dataSource = dataSourceCache.getUnchecked(uuid);
+                    LocalUser user = new LocalUser(uuid, plugin, tempManager, dataSource, executor, wildcardSupport);
+                    UserData data = dataSource.getAllData(); // A single round trip, instead of one per kind of data and world.
+                    user.loadData(data, groupManager);
                     for (PermissionGroup g : user.getParents()) {
                         if (g instanceof LocalGroup) {
                             ((LocalGroup) g).addUserToGroup(user);
                         }
                     }
+                    tempManager.initializeTemporaryPermissions(user, data, data.getWorlds());
                     return user;
                 }
             });
@@ -71,6 +80,13 @@ public class LocalUserManager implements UserManager {
     private final GroupManager groupManager;
     private final UUIDHandler uuidSource;
     private final TemporaryPermissionManager tempManager;
+    private final Executor executor; // Used to prefetch users, and to compile their permission snapshots.
+
+    // Users of online players, pinned so that they're never evicted and can be found without touching the cache.
+    private final ConcurrentMap<UUID, LocalUser> onlineUsers = new ConcurrentHashMap<>();
+
+    // Users that started loading before they joined, handed over once they do.
+    private final ConcurrentMap<UUID, Future<LocalUser>> prefetchedUsers = new ConcurrentHashMap<>();
 
     private final UserDataSourceFactory userDataSourceFactory;
 
@@ -78,17 +94,19 @@ public class LocalUserManager implements UserManager {
     private final boolean wildcardSupport;
 
     public LocalUserManager(Plugin plugin, GroupManager groupManager, UUIDHandler uuidSource, TemporaryPermissionManager tempManager, UserDataSourceFactory userDataSourceFactory,
-            String defaultGroup, boolean wildcardSupport) {
+            Executor executor, String defaultGroup, boolean wildcardSupport) {
         Preconditions.checkNotNull(plugin, "plugin");
         Preconditions.checkNotNull(groupManager, "group manager");
         Preconditions.checkNotNull(uuidSource, "uuid source");
         Preconditions.checkNotNull(tempManager, "temp manager");
         Preconditions.checkNotNull(userDataSourceFactory, "user datasource factory");
+        Preconditions.checkNotNull(executor, "executor");
         this.plugin = plugin;
         this.uuidSource = uuidSource;
         this.groupManager = groupManager;
         this.tempManager = tempManager;
         this.userDataSourceFactory = userDataSourceFactory;
+        this.executor = executor;
         this.defaultGroup = defaultGroup;
         this.wildcardSupport = wildcardSupport;
     }
@@ -104,16 +122,29 @@ public class LocalUserManager implements UserManager {
     @Override
     public LocalUser getPermissionUser(OfflinePlayer player) {
         Preconditions.checkNotNull(player, "player");
+        if (player instanceof Player) { // An online player's unique id is authoritative, there's no need to resolve their name.
+            return getPermissionUser(player.getUniqueId());
+        }
         return getPermissionUser(player.getName());
     }
 
+    @Override
+    public LocalUser getPermissionUser(UUID uniqueId) {
+        Preconditions.checkNotNull(uniqueId, "unique id");
+        LocalUser user = onlineUsers.get(uniqueId);
+        if (user != null) {
+            return user;
+        }
+        return userCache.getUnchecked(uniqueId);
+    }
+
     @Override
     public LocalUser getPermissionUser(String name) {
         Preconditions.checkNotNull(name, "name");
         if (!canUserExist(name)) {
             throw new InvalidUsernameException(name);
         }
-        return userCache.getUnchecked(getUniqueId(name));
+        return getPermissionUser(getUniqueId(name));
     }
 
     @Override
@@ -137,9 +168,92 @@ public class LocalUserManager implements UserManager {
         return VALID_USERNAME_PATTERN.matcher(name).matches();
     }
 
+    /**
+     * Start loading a user on the executor before they join, so that their join doesn't have to touch the database.<br>
+     * This is meant to be called from the asynchronous pre login event.
+     *
+     * @return a future that completes once the user is loaded.
+     */
+    public Future<LocalUser> prefetchUser(final String name, final UUID uniqueId) {
+        Preconditions.checkNotNull(name, "name");
+        Preconditions.checkNotNull(uniqueId, "unique id");
+        FutureTask<LocalUser> task = new FutureTask<>(new Callable<LocalUser>() {
+            @Override
+            public LocalUser call( ) throws Exception {
+                uuidSource.setNameUuid(name, uniqueId);
+                LocalUser user = userCache.getUnchecked(uniqueId);
+                initializeDefaultGroup(user);
+                return user;
+            }
+        });
+        Future<LocalUser> previousTask = prefetchedUsers.put(uniqueId, task);
+        if (previousTask != null) {
+            previousTask.cancel(false);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Forget a prefetched user whose login didn't go through.
+     */
+    public void discardPrefetchedUser(UUID uniqueId) {
+        Preconditions.checkNotNull(uniqueId, "unique id");
+        Future<LocalUser> task = prefetchedUsers.remove(uniqueId);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * @return the user that was prefetched for the given unique id, if loading them finished and they're still cached, or null otherwise.
+     */
+    private LocalUser takePrefetchedUser(UUID uniqueId) {
+        Future<LocalUser> task = prefetchedUsers.remove(uniqueId);
+        if ((task == null) || !task.isDone() || task.isCancelled()) {
+            return null;
+        }
+        try {
+            LocalUser user = task.get();
+            return (userCache.getIfPresent(uniqueId) == user) ? user : null; // An evicted user has already been detached from its groups.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().warning("Prefetching the user " + uniqueId + " failed, they'll be loaded on join instead: " + e.getCause());
+        }
+        return null;
+    }
+
     public void initializeUser(Player player) {
         Preconditions.checkNotNull(player, "player");
-        LocalUser permissionUser = getPermissionUser(player);
+        LocalUser user = takePrefetchedUser(player.getUniqueId());
+        if (user == null) {
+            uuidSource.setNameUuid(player.getName(), player.getUniqueId());
+            user = userCache.getUnchecked(player.getUniqueId());
+            initializeDefaultGroup(user);
+        }
+        onlineUsers.put(player.getUniqueId(), user);
+    }
+
+    public void deinitializeUser(Player player) {
+        Preconditions.checkNotNull(player, "player");
+        LocalUser user = onlineUsers.remove(player.getUniqueId());
+        if ((user != null) && (userCache.getIfPresent(player.getUniqueId()) != user)) { // It was evicted while it was pinned.
+            detachUser(user);
+        }
+    }
+
+    private void detachUser(LocalUser user) {
+        user.markDetached();
+        tempManager.cancelTemporaryPermissions(user); // Registered when the user was loaded.
+        for (PermissionGroup g : user.getParents()) {
+            if (g instanceof LocalGroup) {
+                ((LocalGroup) g).removeUserFromGroup(user); // No one should have references of this user here anymore.
+            }
+        }
+    }
+
+    private void initializeDefaultGroup(LocalUser permissionUser) {
         if (permissionUser.getParents().size() == 0) { // Set their group to the default group if necessary.
             permissionUser.addParent(groupManager.getGroup(defaultGroup));
         }
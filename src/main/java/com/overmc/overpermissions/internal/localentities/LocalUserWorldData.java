@@ -16,6 +16,11 @@ public class LocalUserWorldData extends LocalTransientPermissionEntity {
         this.tempManager = tempManager;
     }
 
+    @Override
+    protected void onPermissionsChanged( ) {
+        user.invalidatePermissionSnapshot(worldName);
+    }
+
     @Override
     protected void registerTempPermission(String node, long timeInMillis) {
         tempManager.registerWorldTemporaryPermission(user, worldName, new TemporaryPermissionEntry(node, System.currentTimeMillis() + timeInMillis));
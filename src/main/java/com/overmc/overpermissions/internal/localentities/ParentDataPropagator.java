@@ -0,0 +1,81 @@
+package com.overmc.overpermissions.internal.localentities;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Recalculates the parent data of users after a group hierarchy change.<br>
+ * Each user is recalculated exactly once per change, split across a bounded pool, and the caller waits for every user to finish.
+ */
+public class ParentDataPropagator {
+    private static final int MIN_USERS_PER_TASK = 16; // Below this, handing work to other threads costs more than it saves.
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Create a propagator that recalculates every user in the calling thread.
+     */
+    public ParentDataPropagator( ) {
+        this(MoreExecutors.sameThreadExecutor(), 1);
+    }
+
+    /**
+     * @param executor the executor to recalculate users on. It should be bounded to {@code parallelism} threads.
+     * @param parallelism the maximum amount of tasks that a single change is split into.
+     */
+    public ParentDataPropagator(ExecutorService executor, int parallelism) {
+        Preconditions.checkNotNull(executor, "executor");
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be greater than 0.");
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Recalculate the parent data of every given user, blocking until all of them are done.
+     *
+     * @throws IllegalStateException if the calling thread is interrupted before every user is done, since some of them might not have been recalculated.
+     */
+    public void recalculate(Collection<LocalUser> users) {
+        Preconditions.checkNotNull(users, "users");
+        int tasks = Math.min(parallelism, users.size() / MIN_USERS_PER_TASK);
+        if (tasks <= 1) {
+            for (LocalUser user : users) {
+                user.recalculateParentData();
+            }
+            return;
+        }
+        List<LocalUser> userList = new ArrayList<>(users);
+        List<Callable<Void>> callables = new ArrayList<>(tasks);
+        for (final List<LocalUser> partition : Lists.partition(userList, (userList.size() + tasks - 1) / tasks)) {
+            callables.add(new Callable<Void>() {
+                @Override
+                public Void call( ) {
+                    for (LocalUser user : partition) {
+                        user.recalculateParentData();
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(callables)) { // Every partition that isn't done is cancelled if this is interrupted.
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted before every user's parent data was recalculated.", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    public void shutdown( ) {
+        executor.shutdown();
+    }
+}
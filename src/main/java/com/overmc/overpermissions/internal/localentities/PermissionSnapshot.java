@@ -0,0 +1,170 @@
+package com.overmc.overpermissions.internal.localentities;
+
+import java.util.*;
+
+import com.overmc.overpermissions.api.PermissionState;
+import com.overmc.overpermissions.internal.NodeTree;
+
+/**
+ * An immutable, precompiled view of every permission a user has in a single world.<br>
+ * Once built, a snapshot is never modified, so it can be read from any thread without locking.
+ */
+final class PermissionSnapshot {
+    private final Map<String, Boolean> values;
+    private final boolean wildcardSupport;
+    private final int version;
+
+    private PermissionSnapshot(Map<String, Boolean> values, boolean wildcardSupport, int version) {
+        this.values = values;
+        this.wildcardSupport = wildcardSupport;
+        this.version = version;
+    }
+
+    /**
+     * @param permission the permission to look up.
+     * @return the state of the permission after every layer has been merged.
+     */
+    PermissionState get(String permission) {
+        if (wildcardSupport) {
+            return PermissionState.fromValue(values.get(permission)); // Node trees fold case while they walk the node.
+        }
+        return PermissionState.fromValue(values.get(permission.toLowerCase()));
+    }
+
+    /**
+     * @return the owning user's snapshot clock, as read before this snapshot's layers were.
+     */
+    int getVersion( ) {
+        return version;
+    }
+
+    /**
+     * Merge a list of permission layers into a single snapshot.
+     *
+     * @param layers the permission values to merge, ordered from the lowest to the highest priority.
+     * @param wildcardSupport whether wildcard nodes should be matched.
+     * @param version the owning user's snapshot clock, read before the layers were.
+     * @return the compiled snapshot.
+     */
+    static PermissionSnapshot compile(List<Map<String, Boolean>> layers, boolean wildcardSupport, int version) {
+        Map<String, Boolean> merged = new HashMap<>();
+        for (Map<String, Boolean> layer : layers) {
+            if (wildcardSupport) {
+                shadowLowerLayers(merged, layer);
+            }
+            merged.putAll(layer);
+        }
+        if (!wildcardSupport) {
+            return new PermissionSnapshot(merged, false, version);
+        }
+        NodeTree<Boolean> tree = new NodeTree<>();
+        for (Map.Entry<String, Boolean> entry : merged.entrySet()) {
+            tree.put(entry.getKey(), entry.getValue());
+        }
+        return new PermissionSnapshot(tree, true, version);
+    }
+
+    /**
+     * A single tree prefers the most specific node, but a wildcard from a higher priority layer has to win over anything it matches from a lower one.<br>
+     * Lower nodes that a wildcard matches entirely are dropped, and where they only partly overlap, the overlap is added with the higher layer's value.
+     */
+    private static void shadowLowerLayers(Map<String, Boolean> merged, Map<String, Boolean> layer) {
+        NodeTree<Boolean> layerTree = null;
+        Map<String, Boolean> overlaps = new HashMap<>();
+        for (String node : layer.keySet()) {
+            if (!isPattern(node)) {
+                continue;
+            }
+            String[] pattern = node.split("\\.");
+            for (Iterator<String> it = merged.keySet().iterator(); it.hasNext();) {
+                String lowerNode = it.next();
+                if (layer.containsKey(lowerNode)) {
+                    continue; // Replaced anyway.
+                }
+                String[] lower = lowerNode.split("\\.");
+                if (covers(pattern, 0, lower, 0)) {
+                    it.remove();
+                    continue;
+                }
+                String overlap = intersect(pattern, 0, lower, 0);
+                if ((overlap != null) && !layer.containsKey(overlap)) {
+                    if (layerTree == null) {
+                        layerTree = new NodeTree<>();
+                        for (Map.Entry<String, Boolean> entry : layer.entrySet()) {
+                            layerTree.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    Boolean value = layerTree.get(overlap); // The layer's own answer, its other nodes might be more specific than this one.
+                    if (value != null) {
+                        overlaps.put(overlap, value);
+                    }
+                }
+            }
+        }
+        merged.putAll(overlaps);
+    }
+
+    private static boolean isPattern(String node) {
+        return node.equals("*") || node.startsWith("*.") || node.endsWith(".*") || node.contains(".*.");
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.equals("*");
+    }
+
+    /**
+     * A wildcard in the middle of a node matches exactly one segment, and one at the end matches one or more, the same way {@link NodeTree} walks them.
+     *
+     * @return whether every node matched by lower is also matched by pattern.
+     */
+    private static boolean covers(String[] pattern, int p, String[] lower, int l) {
+        if (p == (pattern.length - 1)) {
+            if (isWildcard(pattern[p])) {
+                return true;
+            }
+            return (l == (lower.length - 1)) && !isWildcard(lower[l]) && pattern[p].equalsIgnoreCase(lower[l]);
+        }
+        if (l == (lower.length - 1)) {
+            return false; // The lower node matches nodes that end here, the pattern doesn't.
+        }
+        if (!isWildcard(pattern[p]) && (isWildcard(lower[l]) || !pattern[p].equalsIgnoreCase(lower[l]))) {
+            return false;
+        }
+        return covers(pattern, p + 1, lower, l + 1);
+    }
+
+    /**
+     * @return the node that matches exactly what both nodes match, or null if they don't match anything in common.
+     */
+    private static String intersect(String[] first, int f, String[] second, int s) {
+        boolean firstEnds = (f == (first.length - 1));
+        boolean secondEnds = (s == (second.length - 1));
+        if (firstEnds || secondEnds) {
+            if (firstEnds && isWildcard(first[f])) {
+                return joinFrom(second, s);
+            }
+            if (secondEnds && isWildcard(second[s])) {
+                return joinFrom(first, f);
+            }
+            return (firstEnds && secondEnds && first[f].equalsIgnoreCase(second[s])) ? first[f] : null;
+        }
+        String segment;
+        if (isWildcard(first[f])) {
+            segment = second[s];
+        } else if (isWildcard(second[s]) || first[f].equalsIgnoreCase(second[s])) {
+            segment = first[f];
+        } else {
+            return null;
+        }
+        String rest = intersect(first, f + 1, second, s + 1);
+        return (rest == null) ? null : (segment + "." + rest);
+    }
+
+    private static String joinFrom(String[] segments, int start) {
+        StringBuilder sb = new StringBuilder(segments[start]);
+        for (int i = start + 1; i < segments.length; i++) {
+            sb.append('.').append(segments[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.overmc.overpermissions.misctests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.overmc.overpermissions.api.TemporaryPermissionEntity;
+import com.overmc.overpermissions.internal.ExpirationWheel;
+
+public final class ExpirationWheelTests {
+    private static TemporaryPermissionEntity createEntity( ) {
+        TemporaryPermissionEntity entity = mock(TemporaryPermissionEntity.class);
+        when(entity.getUniqueId()).thenReturn(UUID.randomUUID());
+        return entity;
+    }
+
+    @Test
+    public void testExpirationsAreBatchedPerEntity( ) {
+        ExpirationWheel wheel = new ExpirationWheel(8, 1000L, 0L);
+        TemporaryPermissionEntity first = createEntity();
+        TemporaryPermissionEntity second = createEntity();
+        wheel.schedule(first, null, "a", 1500L);
+        wheel.schedule(first, "world", "b", 1900L);
+        wheel.schedule(second, null, "c", 1200L);
+        wheel.schedule(second, null, "d", 5000L);
+
+        assertTrue("Nothing should expire before its tick", wheel.advance(1999L).isEmpty());
+        Map<TemporaryPermissionEntity, List<ExpirationWheel.Expiration>> due = wheel.advance(2000L);
+        assertEquals(2, due.size());
+        assertEquals(2, due.get(first).size());
+        assertEquals("c", due.get(second).get(0).getNode());
+        assertEquals(1, wheel.size());
+        assertEquals("d", wheel.advance(5000L).get(second).get(0).getNode());
+    }
+
+    @Test
+    public void testExpirationsPastOneTurn( ) {
+        ExpirationWheel wheel = new ExpirationWheel(4, 1000L, 0L);
+        TemporaryPermissionEntity entity = createEntity();
+        wheel.schedule(entity, null, "a", 10000L); // Two and a half turns away, sharing a bucket with earlier ticks.
+        for (long time = 0L; time < 10000L; time += 1000L) {
+            assertTrue("Expired early at " + time, wheel.advance(time).isEmpty());
+        }
+        assertEquals(1, wheel.advance(10000L).get(entity).size());
+    }
+
+    @Test
+    public void testCancellation( ) {
+        ExpirationWheel wheel = new ExpirationWheel(8, 1000L, 0L);
+        TemporaryPermissionEntity first = createEntity();
+        TemporaryPermissionEntity second = createEntity();
+        wheel.schedule(first, null, "a", 1000L);
+        wheel.schedule(first, "World", "a", 1000L);
+        wheel.schedule(second, null, "b", 1000L);
+        wheel.schedule(second, null, "c", 1000L);
+
+        assertTrue(wheel.cancel(first.getUniqueId(), "world", "A"));
+        assertFalse(wheel.cancel(first.getUniqueId(), "world", "a"));
+        wheel.cancelAll(second.getUniqueId());
+        Map<TemporaryPermissionEntity, List<ExpirationWheel.Expiration>> due = wheel.advance(1000L);
+        assertEquals(1, due.size());
+        assertNull(due.get(first).get(0).getWorldName());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRescheduleReplaces( ) {
+        ExpirationWheel wheel = new ExpirationWheel(8, 1000L, 0L);
+        TemporaryPermissionEntity entity = createEntity();
+        wheel.schedule(entity, null, "a", 1000L);
+        wheel.schedule(entity, null, "a", 3000L);
+        assertTrue(wheel.advance(2000L).isEmpty());
+        assertEquals(3000L, wheel.advance(3000L).get(entity).get(0).getExpirationTime());
+    }
+}
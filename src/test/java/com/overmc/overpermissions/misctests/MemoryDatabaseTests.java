@@ -0,0 +1,71 @@
+package com.overmc.overpermissions.misctests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.exceptions.GroupAlreadyExistsException;
+import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.internal.databases.memory.MemoryDatabase;
+import com.overmc.overpermissions.internal.datasources.UserData;
+import com.overmc.overpermissions.internal.datasources.UserDataSource;
+import com.overmc.overpermissions.internal.localentities.LocalGroupManager;
+
+public final class MemoryDatabaseTests {
+    @Test
+    public void testGroupsReload( ) throws GroupAlreadyExistsException {
+        MemoryDatabase database = new MemoryDatabase("default", false);
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+
+        LocalGroupManager groupManager = new LocalGroupManager(Logger.getAnonymousLogger(), database, tempManager, true);
+        groupManager.reloadGroups();
+        assertTrue("The default group must always exist.", groupManager.doesGroupExist("default"));
+        groupManager.createGroup("admin", 100);
+        PermissionGroup admin = groupManager.getGroup("admin");
+        admin.addParent(groupManager.getGroup("default"));
+        admin.addGlobalPermissionNode("admin.node");
+        admin.addPermissionNode("-admin.world.node", "World");
+        groupManager.getGroup("default").addGlobalPermissionNode("default.node");
+
+        LocalGroupManager reloadedManager = new LocalGroupManager(Logger.getAnonymousLogger(), database, tempManager, true);
+        reloadedManager.reloadGroups();
+        PermissionGroup reloadedAdmin = reloadedManager.getGroup("admin");
+        assertNotNull("A created group must be stored.", reloadedAdmin);
+        assertTrue("A group's permissions must be stored.", reloadedAdmin.hasGlobalPermission("admin.node"));
+        assertTrue("A group's world permissions must be stored.", reloadedAdmin.hasPermission("admin.world.node", "world"));
+        assertTrue("A group's parents must be stored.", reloadedAdmin.getParents().contains(reloadedManager.getGroup("default")));
+        assertTrue("A parent's permissions must be stored.", reloadedManager.getGroup("default").hasGlobalPermission("default.node"));
+    }
+
+    @Test
+    public void testUserData( ) throws GroupAlreadyExistsException {
+        MemoryDatabase database = new MemoryDatabase("default", false);
+        LocalGroupManager groupManager = new LocalGroupManager(Logger.getAnonymousLogger(), database, mock(TemporaryPermissionManager.class), true);
+        groupManager.reloadGroups();
+        groupManager.createGroup("member", 10);
+
+        UserDataSource source = database.createUserDataSource(UUID.randomUUID());
+        assertFalse("A user must not exist before anything is stored for it.", source.doesUserExist());
+        source.addPermissions(Arrays.asList("user.node"));
+        source.createWorldDataSource("World").setMeta("prefix", "[World]");
+        source.addTempPermission("expired.node", System.currentTimeMillis() - 1000);
+        source.addTempPermission("temp.node", System.currentTimeMillis() + 60000);
+        source.setParent(groupManager.getGroup("member"));
+        assertTrue("A user must exist once something is stored for it.", source.doesUserExist());
+
+        UserData data = source.getAllData();
+        assertTrue("A user's permissions must be stored.", data.getPermissions().contains("user.node"));
+        assertEquals("A user's world metadata must be stored.", "[World]", data.getWorlds().get("world").getMetadata().get("prefix"));
+        assertEquals("Expired temporary permissions must not be loaded.", 1, data.getTempPermissions().size());
+        assertEquals("A user's parents must be stored.", Arrays.asList("member"), data.getParents());
+
+        groupManager.deleteGroup("member");
+        assertEquals("A user must be moved to the default group once its group is deleted.", Arrays.asList("default"), source.getParents());
+    }
+}
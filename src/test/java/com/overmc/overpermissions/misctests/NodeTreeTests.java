@@ -38,6 +38,37 @@ public class NodeTreeTests {
         assertFalse("The tree must not contain not.a.node", tree.containsKey("not.a.node"));
     }
 
+    @Test
+    public void testLookupPriority( ) {
+        NodeTree<Boolean> tree = new NodeTree<>();
+        tree.put("my.node.*", false);
+        tree.put("my.node.exact", true);
+        tree.put("my.*.other", true);
+        assertEquals("Exact nodes must be matched before wildcards.", Boolean.TRUE, tree.get("my.node.exact"));
+        assertEquals("Wildcards must match any subnode.", Boolean.FALSE, tree.get("my.node.exact.deeper"));
+        assertEquals("Wildcard segments must match any segment.", Boolean.TRUE, tree.get("my.thing.other"));
+        assertNull("Unmatched nodes must not have a value.", tree.get("my.thing"));
+        assertEquals("Lookups must ignore case.", Boolean.TRUE, tree.get("MY.Node.EXACT"));
+        assertTrue("Lookups must ignore case.", tree.containsKey("My.Thing.Other"));
+    }
+
+    @Test
+    public void testRemoval( ) {
+        NodeTree<Boolean> tree = new NodeTree<>();
+        for (int i = 0; i < 64; i++) {
+            tree.put("my.node" + i + ".sub", i % 2 == 0);
+        }
+        assertEquals("Every inserted node must be counted.", 64, tree.size());
+        for (int i = 0; i < 64; i += 2) {
+            assertEquals("Removal must return the old value.", Boolean.TRUE, tree.remove("MY.node" + i + ".sub"));
+        }
+        assertEquals("Every removed node must be uncounted.", 32, tree.size());
+        for (int i = 0; i < 64; i++) {
+            assertEquals("Only removed nodes can be missing.", i % 2 != 0, tree.containsKey("my.node" + i + ".sub"));
+        }
+        assertEquals("Every remaining node must be iterated.", 32, tree.keySet().size());
+    }
+
     @Test(expected = NullPointerException.class)
     public void testInsertionNPE( ) {
         (new NodeTree<Object>()).put(null, null);
@@ -0,0 +1,87 @@
+package com.overmc.overpermissions.misctests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.overmc.overpermissions.internal.LatencyHistogram;
+import com.overmc.overpermissions.internal.PluginExecutor;
+
+public final class PluginExecutorTests {
+    private static Runnable await(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run( ) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testCallerRunsOnceQueueIsFull( ) throws InterruptedException {
+        PluginExecutor executor = new PluginExecutor("Test", Logger.getAnonymousLogger(), 1, 1, PluginExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(await(release)); // Takes the only thread.
+            executor.execute(await(release)); // Fills the queue.
+            final AtomicReference<Thread> runner = new AtomicReference<>();
+            executor.execute(new Runnable() {
+                @Override
+                public void run( ) {
+                    runner.set(Thread.currentThread());
+                }
+            });
+            assertSame("A task submitted to a full executor must run in its caller.", Thread.currentThread(), runner.get());
+            assertEquals(1, executor.getRejectedCount());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals("Both queued tasks must have their run time recorded.", 2, executor.getRunTimeHistogram().getCount());
+        assertEquals(2, executor.getQueueWaitHistogram().getCount());
+    }
+
+    @Test
+    public void testAbortOnceQueueIsFull( ) {
+        PluginExecutor executor = new PluginExecutor("Test", Logger.getAnonymousLogger(), 1, 1, PluginExecutor.RejectionPolicy.ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(await(release));
+            executor.execute(await(release));
+            executor.submit(await(release));
+            fail("A task submitted to a full executor must be rejected.");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, executor.getRejectedCount());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles( ) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0.0, histogram.getPercentileMillis(99), 0.0);
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(100, histogram.getCount());
+        assertEquals("Percentiles are rounded up to the next power of two microseconds.", 0.128, histogram.getPercentileMillis(50), 0.0);
+        assertEquals(0.128, histogram.getPercentileMillis(99), 0.0);
+        assertEquals("The top percentile is capped to the longest duration.", 50.0, histogram.getPercentileMillis(100), 0.0);
+        assertEquals(50.0, histogram.getMaxMillis(), 0.0);
+        assertEquals(0.599, histogram.getAverageMillis(), 0.000001);
+    }
+}
@@ -0,0 +1,124 @@
+package com.overmc.overpermissions.misctests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.overmc.overpermissions.internal.databases.SingleConnectionPool;
+
+public final class StatementCacheTests {
+    private final List<PreparedStatement> preparedStatements = new ArrayList<>();
+
+    private Connection createConnection( ) throws SQLException {
+        Connection con = mock(Connection.class);
+        when(con.prepareStatement(anyString())).thenAnswer(new Answer<PreparedStatement>() {
+            @Override
+            public PreparedStatement answer(InvocationOnMock invocation) {
+                PreparedStatement pst = mock(PreparedStatement.class);
+                preparedStatements.add(pst);
+                return pst;
+            }
+        });
+        return con;
+    }
+
+    @Test
+    public void testStatementsAreReused( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 10);
+        PreparedStatement first = cachingCon.prepareStatement("SELECT 1");
+        first.setInt(1, 5);
+        first.close();
+        assertTrue(first.isClosed());
+        PreparedStatement second = cachingCon.prepareStatement("SELECT 1");
+        assertFalse("A returned statement must be handed out again.", second.isClosed());
+        verify(con, times(1)).prepareStatement("SELECT 1");
+        PreparedStatement cached = preparedStatements.get(0);
+        verify(cached).clearParameters();
+        verify(cached, never()).close();
+        assertSame(cachingCon, second.getConnection());
+    }
+
+    @Test
+    public void testStatementsInUseAreNotShared( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 10);
+        PreparedStatement first = cachingCon.prepareStatement("SELECT 1");
+        PreparedStatement second = cachingCon.prepareStatement("SELECT 1");
+        verify(con, times(2)).prepareStatement("SELECT 1");
+        second.close();
+        verify(preparedStatements.get(1)).close(); // The second statement isn't cached, so it's closed as usual.
+        first.close();
+        try {
+            first.executeQuery();
+            fail("A statement must not be usable once it's returned to the cache.");
+        } catch (SQLException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 2);
+        cachingCon.prepareStatement("SELECT 1").close();
+        cachingCon.prepareStatement("SELECT 2").close();
+        cachingCon.prepareStatement("SELECT 1").close();
+        cachingCon.prepareStatement("SELECT 3").close(); // Evicts SELECT 2, the least recently used.
+        cachingCon.prepareStatement("SELECT 1").close();
+        cachingCon.prepareStatement("SELECT 2").close();
+        verify(con, times(1)).prepareStatement("SELECT 1");
+        verify(con, times(2)).prepareStatement("SELECT 2");
+        verify(preparedStatements.get(0), never()).close();
+        verify(preparedStatements.get(1)).close();
+    }
+
+    @Test
+    public void testStatementEvictedInUseIsClosedOnReturn( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 1);
+        PreparedStatement first = cachingCon.prepareStatement("SELECT 1");
+        cachingCon.prepareStatement("SELECT 2").close();
+        PreparedStatement evicted = preparedStatements.get(0);
+        verify(evicted, never()).close();
+        first.close();
+        verify(evicted).close();
+    }
+
+    @Test
+    public void testParameterListsAreNotCached( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 10);
+        String[] queries = {"SELECT uid FROM Worlds WHERE name IN (?, ?)", "INSERT IGNORE INTO Worlds(name) VALUES (?), (?)"};
+        for (String query : queries) {
+            cachingCon.prepareStatement(query).close();
+            cachingCon.prepareStatement(query).close();
+            verify(con, times(2)).prepareStatement(query);
+        }
+        for (PreparedStatement pst : preparedStatements) {
+            verify(pst).close();
+        }
+    }
+
+    @Test
+    public void testCloseClosesCachedStatements( ) throws SQLException {
+        Connection con = createConnection();
+        SingleConnectionPool.UncloseableConnection cachingCon = new SingleConnectionPool.UncloseableConnection(con, 10);
+        cachingCon.prepareStatement("SELECT 1").close();
+        PreparedStatement borrowed = cachingCon.prepareStatement("SELECT 2");
+        cachingCon.closeConnection();
+        verify(preparedStatements.get(0)).close();
+        verify(preparedStatements.get(1), never()).close();
+        borrowed.close();
+        verify(preparedStatements.get(1)).close();
+    }
+}
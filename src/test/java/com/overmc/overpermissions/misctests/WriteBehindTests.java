@@ -0,0 +1,175 @@
+package com.overmc.overpermissions.misctests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.overmc.overpermissions.api.MetadataEntry;
+import com.overmc.overpermissions.internal.databases.Database;
+import com.overmc.overpermissions.internal.databases.writebehind.WriteBehindDatabase;
+import com.overmc.overpermissions.internal.datasources.UserDataSource;
+
+public final class WriteBehindTests {
+    @Test
+    public void testChangesCoalesce( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 1, TimeUnit.HOURS);
+        try {
+            UserDataSource source = writeBehind.createUserDataSource(uuid);
+            source.addPermission("a");
+            source.removePermission("a");
+            source.addPermission("b");
+            source.setMeta("key", "first");
+            source.setMeta("key", "second");
+            source.removeMeta("other");
+            verifyZeroInteractions(userSource);
+
+            writeBehind.flushAll();
+            verify(userSource).removePermissions(Arrays.asList("a"));
+            verify(userSource).addPermissions(Arrays.asList("b"));
+            verify(userSource).setMetaEntries(Arrays.asList(new MetadataEntry("key", "second"), new MetadataEntry("other", null)));
+            verifyNoMoreInteractions(userSource);
+
+            source.getPermissions(); // Nothing's queued, so this only reads.
+            verify(userSource).getPermissions();
+            verifyNoMoreInteractions(userSource);
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    public void testChangesCoalesceRegardlessOfCase( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 1, TimeUnit.HOURS);
+        try {
+            UserDataSource source = writeBehind.createUserDataSource(uuid);
+            source.addPermission("Foo.Bar");
+            source.removePermission("foo.bar");
+            source.setMeta("Prefix", "first");
+            source.setMeta("prefix", "second");
+            writeBehind.flushAll();
+            verify(userSource).removePermissions(Arrays.asList("foo.bar"));
+            verify(userSource).setMetaEntries(Arrays.asList(new MetadataEntry("prefix", "second")));
+            verifyNoMoreInteractions(userSource);
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedChangesAreRequeued( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+        doThrow(new RuntimeException("The database is unavailable.")).doNothing().when(userSource).addPermissions(anyCollectionOf(String.class));
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 1, TimeUnit.HOURS);
+        try {
+            UserDataSource source = writeBehind.createUserDataSource(uuid);
+            source.addPermission("a");
+            source.addPermission("b");
+            writeBehind.flushAll();
+            verify(userSource).addPermissions(Arrays.asList("a", "b"));
+
+            source.removePermission("a"); // Newer than the failed add, so it has to win.
+            writeBehind.flushAll();
+            verify(userSource).removePermissions(Arrays.asList("a"));
+            verify(userSource).addPermissions(Arrays.asList("b"));
+            verifyNoMoreInteractions(userSource);
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadsSeeQueuedChanges( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 1, TimeUnit.HOURS);
+        try {
+            UserDataSource source = writeBehind.createUserDataSource(uuid);
+            source.addPermission("a");
+            source.getPermissions();
+            verify(userSource).addPermissions(Collections.singletonList("a"));
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadingSeesChangesQueuedOnOtherSources( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 1, TimeUnit.HOURS);
+        try {
+            UserDataSource unloaded = writeBehind.createUserDataSource(uuid);
+            unloaded.addPermission("a");
+            UserDataSource reloaded = writeBehind.createUserDataSource(uuid); // The user is loaded again with a new data source.
+            reloaded.getAllData();
+            unloaded.addPermission("b");
+            reloaded.doesUserExist();
+            InOrder inOrder = inOrder(userSource);
+            inOrder.verify(userSource).addPermissions(Collections.singletonList("a"));
+            inOrder.verify(userSource).getAllData();
+            inOrder.verify(userSource).addPermissions(Collections.singletonList("b"));
+            inOrder.verify(userSource).doesUserExist();
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushAllWaitsForTakenFlush( ) {
+        UUID uuid = UUID.randomUUID();
+        Database database = mock(Database.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(database.createUserDataSource(uuid)).thenReturn(userSource);
+        final AtomicInteger written = new AtomicInteger();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                written.incrementAndGet();
+                return null;
+            }
+        }).when(userSource).addPermissions(anyCollectionOf(String.class));
+
+        WriteBehindDatabase writeBehind = new WriteBehindDatabase(Logger.getAnonymousLogger(), database, 0, TimeUnit.MILLISECONDS); // The writer thread takes every flush as soon as it's scheduled.
+        try {
+            UserDataSource source = writeBehind.createUserDataSource(uuid);
+            for (int i = 0; i < 1000; i++) {
+                source.addPermission("node" + i);
+                writeBehind.flushAll();
+                assertEquals("flushAll must not return before a flush the writer already took is written.", i + 1, written.get());
+            }
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+}
@@ -3,17 +3,36 @@ package com.overmc.overpermissions.permissiontests;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import org.bukkit.plugin.Plugin;
 import org.junit.Test;
 
 import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.overmc.overpermissions.internal.TemporaryPermissionManager;
+import com.overmc.overpermissions.api.GroupManager;
+import com.overmc.overpermissions.api.PermissionGroup;
+import com.overmc.overpermissions.internal.datasources.BulkGroupData;
 import com.overmc.overpermissions.internal.datasources.GroupDataSource;
+import com.overmc.overpermissions.internal.datasources.GroupManagerDataSource;
+import com.overmc.overpermissions.internal.datasources.GroupManagerDataSourceFactory;
+import com.overmc.overpermissions.internal.datasources.PermissionEntityDataSource;
+import com.overmc.overpermissions.internal.datasources.UserData;
 import com.overmc.overpermissions.internal.datasources.UserDataSource;
 import com.overmc.overpermissions.internal.localentities.LocalGroup;
+import com.overmc.overpermissions.internal.localentities.LocalGroupManager;
 import com.overmc.overpermissions.internal.localentities.LocalUser;
+import com.overmc.overpermissions.internal.localentities.ParentDataPropagator;
 
 public final class PermissionInheritanceTests {
     @Test
@@ -76,4 +95,236 @@ public final class PermissionInheritanceTests {
         user.addGlobalPermissionNode("+mynode");
         assertTrue("User must have a global permission if it is forced to true.", user.hasGlobalPermission("mynode"));
     }
+
+    @Test
+    public void testWorldPermissionPriority( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        Plugin plugin = mock(Plugin.class);
+
+        GroupDataSource groupSource = mock(GroupDataSource.class);
+        when(groupSource.getPriority()).thenReturn(100);
+        when(groupSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(userSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+
+        LocalGroup parent = new LocalGroup(groupSource, tempManager, "parent", 100, true);
+        LocalUser user = new LocalUser(UUID.nameUUIDFromBytes("Name".getBytes(Charsets.UTF_8)), plugin, tempManager, userSource, true);
+        user.addParent(parent);
+        parent.addUserToGroup(user);
+
+        parent.addGlobalPermissionNode("my.node");
+        assertTrue("User must inherit a global group permission in a world.", user.getPermission("my.node", "World"));
+        parent.addPermissionNode("-my.node", "world");
+        assertFalse("A group world permission must override a group global permission.", user.getPermission("my.node", "World"));
+        assertTrue("A group world permission must not leak into other worlds.", user.getPermission("my.node", "other"));
+        user.addGlobalPermissionNode("my.*");
+        assertTrue("A user global wildcard must override group permissions.", user.getPermission("my.node", "world"));
+        user.addPermissionNode("-my.node", "world");
+        assertFalse("A user world permission must override a user global permission.", user.getPermission("my.node", "world"));
+        user.removePermissionNode("-my.node", "world");
+        assertTrue("Removing a user world permission must be visible immediately.", user.getPermission("my.node", "world"));
+    }
+
+    @Test
+    public void testSnapshotWildcardShadowing( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        Plugin plugin = mock(Plugin.class);
+
+        GroupDataSource groupSource = mock(GroupDataSource.class);
+        when(groupSource.getPriority()).thenReturn(100);
+        when(groupSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+        LocalGroup parent = new LocalGroup(groupSource, tempManager, "parent", 100, true);
+        parent.addGlobalPermissionNode("a.b.c");
+        parent.addGlobalPermissionNode("a.b.*");
+        parent.addGlobalPermissionNode("q.r.s");
+        parent.addGlobalPermissionNode("w.x.y");
+        parent.addPermissionNode("-w.*.y", "world");
+
+        Executor neverRuns = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        };
+        LocalUser walkingUser = createWildcardUser(tempManager, plugin, parent, neverRuns); // Never gets a snapshot, so it always walks its layers.
+        LocalUser compiledUser = createWildcardUser(tempManager, plugin, parent, MoreExecutors.sameThreadExecutor());
+        compiledUser.getPermissionState("a.b.c", "world"); // Compiles the snapshot.
+
+        String[] nodes = {"a.b.c", "a.b.d", "a.x.c", "a.b.c.d", "a.b", "q.r.s", "q.r", "w.x.y", "w.z.y", "w.x.z", "w.x.y.z"};
+        for (String node : nodes) {
+            assertEquals("A snapshot must match the layers it was compiled from for " + node + ".", walkingUser.getPermissionState(node, "world"), compiledUser.getPermissionState(node, "world"));
+        }
+        assertFalse("A higher wildcard in the middle of a node must override a lower literal node.", compiledUser.getPermission("a.b.c", "world"));
+        assertTrue("A lower wildcard must still apply where a higher one doesn't match.", compiledUser.getPermission("a.b.d", "world"));
+        assertFalse("A higher trailing wildcard must override a lower literal node.", compiledUser.getPermission("q.r.s", "world"));
+        assertTrue("A higher trailing wildcard must override where it overlaps a lower wildcard.", compiledUser.getPermission("w.x.y", "world"));
+    }
+
+    private static LocalUser createWildcardUser(TemporaryPermissionManager tempManager, Plugin plugin, LocalGroup parent, Executor snapshotExecutor) {
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(userSource.createWorldDataSource(anyString())).thenReturn(mock(PermissionEntityDataSource.class));
+        LocalUser user = new LocalUser(UUID.randomUUID(), plugin, tempManager, userSource, snapshotExecutor, true);
+        user.addParent(parent);
+        parent.addUserToGroup(user);
+        user.addGlobalPermissionNode("-a.*.c");
+        user.addGlobalPermissionNode("-q.*");
+        user.addPermissionNode("w.x.*", "world");
+        return user;
+    }
+
+    @Test
+    public void testParallelPropagation( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        Plugin plugin = mock(Plugin.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParentDataPropagator propagator = new ParentDataPropagator(executor, 2);
+            LocalGroup base = new LocalGroup(mock(GroupDataSource.class), tempManager, propagator, "base", 0, true);
+            LocalGroup left = new LocalGroup(mock(GroupDataSource.class), tempManager, propagator, "left", 10, true);
+            LocalGroup right = new LocalGroup(mock(GroupDataSource.class), tempManager, propagator, "right", 20, true);
+            LocalGroup top = new LocalGroup(mock(GroupDataSource.class), tempManager, propagator, "top", 30, true);
+            left.addParent(base);
+            right.addParent(base);
+            top.addParent(left);
+            top.addParent(right); // Users of top are reachable from base through both left and right.
+
+            List<CountingUser> users = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                CountingUser user = new CountingUser(UUID.nameUUIDFromBytes(("Name" + i).getBytes(Charsets.UTF_8)), plugin, tempManager);
+                user.addParent(top);
+                users.add(user);
+            }
+            LocalGroup extra = new LocalGroup(mock(GroupDataSource.class), tempManager, propagator, "extra", 5, true);
+            extra.addGlobalPermissionNode("extra.node");
+            for (CountingUser user : users) {
+                user.recalculations.set(0);
+            }
+            base.addParent(extra);
+            for (CountingUser user : users) {
+                assertTrue("Every user must inherit a parent added far up the hierarchy.", user.hasGlobalPermission("extra.node"));
+                assertEquals("Every user must be recalculated once, even when it's reachable through several groups.", 1, user.recalculations.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptedPropagation( ) throws InterruptedException {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() { // Keeps the only thread busy, so no partition can finish.
+                @Override
+                public void run( ) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            List<LocalUser> users = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                users.add(new LocalUser(UUID.randomUUID(), mock(Plugin.class), tempManager, mock(UserDataSource.class), true));
+            }
+            Thread.currentThread().interrupt();
+            try {
+                new ParentDataPropagator(executor, 2).recalculate(users);
+                fail("An interrupted recalculation must not return as if every user was done.");
+            } catch (IllegalStateException e) {
+                assertTrue("The interrupt must be kept.", Thread.interrupted());
+            }
+        } finally {
+            Thread.interrupted();
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static final class CountingUser extends LocalUser {
+        private final AtomicInteger recalculations = new AtomicInteger();
+
+        private CountingUser(UUID uniqueId, Plugin plugin, TemporaryPermissionManager tempManager) {
+            super(uniqueId, plugin, tempManager, mock(UserDataSource.class), true);
+        }
+
+        @Override
+        public void recalculateParentData( ) {
+            recalculations.incrementAndGet();
+            super.recalculateParentData();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInheritanceCycle( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        LocalGroup first = new LocalGroup(mock(GroupDataSource.class), tempManager, "first", 10, true);
+        LocalGroup second = new LocalGroup(mock(GroupDataSource.class), tempManager, "second", 20, true);
+        LocalGroup third = new LocalGroup(mock(GroupDataSource.class), tempManager, "third", 30, true);
+        second.addParent(first);
+        third.addParent(second);
+        assertEquals("Ancestors must be flattened and sorted by priority.", Arrays.asList(second, first), new ArrayList<>(third.getAllParents()));
+        first.addParent(third);
+    }
+
+    @Test
+    public void testBulkGroupLoad( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        BulkGroupData data = new BulkGroupData();
+        BulkGroupData.GroupData base = data.addGroup("Base", 0);
+        base.addPermission("base.node");
+        base.getOrCreateWorld("World").addPermission("-base.node");
+        BulkGroupData.GroupData admin = data.addGroup("Admin", 10);
+        admin.addPermission("admin.node");
+        admin.addParent("Base");
+        base.addChild("Admin");
+
+        GroupManagerDataSource managerSource = mock(GroupManagerDataSource.class);
+        when(managerSource.getAllGroupData()).thenReturn(data);
+        GroupDataSource groupSource = mock(GroupDataSource.class);
+        GroupManagerDataSourceFactory sourceFactory = mock(GroupManagerDataSourceFactory.class);
+        when(sourceFactory.createGroupManagerDataSource()).thenReturn(managerSource);
+        when(sourceFactory.createGroupDataSource(anyString())).thenReturn(groupSource);
+
+        LocalGroupManager groupManager = new LocalGroupManager(Logger.getAnonymousLogger(), sourceFactory, tempManager, true);
+        try {
+            groupManager.reloadGroups();
+            PermissionGroup loadedAdmin = groupManager.getGroup("admin");
+            assertTrue("A loaded group must have its own global permissions.", loadedAdmin.getGlobalPermission("admin.node"));
+            assertFalse("A loaded group must have its world permissions.", groupManager.getGroup("base").getPermission("base.node", "world"));
+            assertEquals("Loaded parents must be part of the flattened hierarchy.", Arrays.asList(groupManager.getGroup("base")), new ArrayList<>(loadedAdmin.getAllParents()));
+            assertEquals("Loaded children must be linked.", Arrays.asList(loadedAdmin), new ArrayList<>(groupManager.getGroup("base").getChildren()));
+            verify(groupSource, never()).getPermissions();
+            verify(groupSource, never()).getParents();
+        } finally {
+            groupManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleLoadUser( ) {
+        TemporaryPermissionManager tempManager = mock(TemporaryPermissionManager.class);
+        LocalGroup parent = new LocalGroup(mock(GroupDataSource.class), tempManager, "parent", 10, true);
+        parent.addGlobalPermissionNode("parent.node");
+        GroupManager groupManager = mock(GroupManager.class);
+        when(groupManager.getGroup("parent")).thenReturn(parent);
+
+        PermissionEntityDataSource worldSource = mock(PermissionEntityDataSource.class);
+        UserDataSource userSource = mock(UserDataSource.class);
+        when(userSource.createWorldDataSource(anyString())).thenReturn(worldSource);
+        UserData data = new UserData();
+        data.addPermission("user.node");
+        data.getOrCreateWorld("World").addPermission("-parent.node");
+        data.addParent("parent");
+
+        LocalUser user = new LocalUser(UUID.nameUUIDFromBytes("Name".getBytes(Charsets.UTF_8)), mock(Plugin.class), tempManager, userSource, true);
+        user.loadData(data, groupManager);
+        assertTrue("A loaded user must have its global permissions.", user.getGlobalPermission("user.node"));
+        assertTrue("A loaded user must inherit from its loaded parents.", user.getGlobalPermission("parent.node"));
+        assertFalse("A loaded user must have its world permissions.", user.getPermission("parent.node", "world"));
+        assertTrue("A world without loaded data must be empty.", user.getPermission("parent.node", "other"));
+        verify(worldSource, never()).getPermissions();
+        verify(userSource, never()).getPermissions();
+    }
 }